@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The per-touch and per-frame work of {@link ClockSlider}: resolving a touch to minutes, the
+ * label for the selected duration, and the start angle for the current time.
+ */
+@State(Scope.Thread)
+public class ClockSliderBenchmark {
+  /** A power of two, so cycling through samples is a mask. */
+  private static final int SAMPLES = 1024;
+  private static final int RADIUS = 500;
+
+  private final int[] dx = new int[SAMPLES];
+  private final int[] dy = new int[SAMPLES];
+  private final int[] minutes = new int[SAMPLES];
+  private int index;
+  private int startAngle;
+
+  @Setup public void setUp() {
+    Random random = new Random(0);
+    for (int i = 0; i < SAMPLES; i++) {
+      do {
+        dx[i] = random.nextInt(2 * RADIUS + 1) - RADIUS;
+        dy[i] = random.nextInt(2 * RADIUS + 1) - RADIUS;
+      } while (dx[i] == 0 && dy[i] == 0);
+      minutes[i] = random.nextInt(49) * 15;
+    }
+    startAngle = ClockMath.startAngle(14, 35);
+  }
+
+  private int next() {
+    index = (index + 1) & (SAMPLES - 1);
+    return index;
+  }
+
+  @Benchmark public int minutesAt() {
+    int i = next();
+    return AngleResolver.minutesAt(dx[i], dy[i], startAngle);
+  }
+
+  /** The floating point version {@link #minutesAt} replaced. */
+  @Benchmark public int pointToAngleAndRound() {
+    int i = next();
+    int angle = AngleResolver.pointToAngle(dx[i], dy[i], 0, 0);
+    return AngleResolver.sweepMinutes(angle, startAngle);
+  }
+
+  @Benchmark public String durationText() {
+    return ClockMath.durationText(minutes[next()]);
+  }
+
+  @Benchmark public int startAngle() {
+    int i = next();
+    return ClockMath.startAngle(i % 24, i % 60);
+  }
+}
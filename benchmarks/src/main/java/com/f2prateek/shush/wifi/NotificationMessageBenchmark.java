@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import java.text.DateFormat;
+import java.util.Locale;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Formatting the "Wifi disabled 'til 2:00 PM" message shown when a schedule is committed. */
+@State(Scope.Thread)
+public class NotificationMessageBenchmark {
+  private static final String TEMPLATE = "Wifi disabled 'til %1$s";
+
+  private DateFormat timeFormat;
+  private long onTime;
+
+  @Setup public void setUp() {
+    timeFormat = DateFormat.getTimeInstance(DateFormat.SHORT, Locale.US);
+    onTime = 1400000000000L;
+  }
+
+  @Benchmark public String untilMessage() {
+    onTime += 15 * 60 * 1000L;
+    return ClockMath.untilMessage(TEMPLATE, timeFormat, onTime);
+  }
+
+  /** What the message costs when the format isn't reused. */
+  @Benchmark public String untilMessageNewFormat() {
+    onTime += 15 * 60 * 1000L;
+    return ClockMath.untilMessage(TEMPLATE,
+        DateFormat.getTimeInstance(DateFormat.SHORT, Locale.US), onTime);
+  }
+}
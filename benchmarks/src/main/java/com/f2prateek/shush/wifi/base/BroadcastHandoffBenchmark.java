@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.base;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** What the main thread pays to hand each broadcast to the background executor. */
+@State(Scope.Thread)
+public class BroadcastHandoffBenchmark {
+  private static final BroadcastHandoff.Result IGNORE_RESULT = new BroadcastHandoff.Result() {
+    @Override public void finish() {
+    }
+  };
+  private static final Runnable NO_OP = new Runnable() {
+    @Override public void run() {
+    }
+  };
+
+  private ExecutorService executor;
+
+  @Setup public void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @TearDown public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark public void handOff() {
+    BroadcastHandoff.handOff(executor, NO_OP, IGNORE_RESULT);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.schedule;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Recording a choice and asking for a suggestion, both done once per scheduler dialog. */
+@State(Scope.Thread)
+public class DurationPredictorBenchmark {
+  private static final int SAMPLES = 1024;
+
+  private final int[] hours = new int[SAMPLES];
+  private final int[] minutes = new int[SAMPLES];
+  private DurationPredictor predictor;
+  private int index;
+
+  @Setup public void setUp() {
+    Random random = new Random(0);
+    for (int i = 0; i < SAMPLES; i++) {
+      hours[i] = random.nextInt(DurationPredictor.HOURS);
+      minutes[i] = (random.nextInt(DurationPredictor.BUCKETS) + 1) * 15;
+    }
+    predictor = new DurationPredictor();
+    for (int i = 0; i < SAMPLES; i++) {
+      predictor.record(hours[i], minutes[i]);
+    }
+  }
+
+  @Benchmark public int recordAndSuggest() {
+    index = (index + 1) & (SAMPLES - 1);
+    predictor.record(hours[index], minutes[index]);
+    return predictor.suggestMinutes(hours[index]);
+  }
+
+  @Benchmark public String encode() {
+    return predictor.encode();
+  }
+}
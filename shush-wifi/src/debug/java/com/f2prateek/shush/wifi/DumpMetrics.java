@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import com.f2prateek.ln.Ln;
+import com.f2prateek.shush.wifi.metrics.Metrics;
+
+/**
+ * Prints the latency percentiles collected by {@link Metrics}. Only included in debug builds.
+ * <p>
+ * {@code adb shell am broadcast -a com.f2prateek.shush.wifi.DUMP_METRICS [--ez clear true]}
+ */
+public final class DumpMetrics extends BroadcastReceiver {
+  private static final String EXTRA_CLEAR = "clear";
+
+  @Override public void onReceive(Context context, Intent intent) {
+    String dump = Metrics.dump();
+    Ln.i("Metrics:\n%s", dump);
+    setResultData(dump); // shown by am broadcast
+    if (intent.getBooleanExtra(EXTRA_CLEAR, false)) {
+      Metrics.clear();
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+/**
+ * Translates a touch on the clock into the number of minutes it selects.
+ * <p>
+ * There are only 48 possible selections, so rather than take the arc tangent of every touch
+ * sample, {@link #minutesAt} finds the whole degree from a table of tangents using integer
+ * multiplication only. It returns exactly what {@link #pointToAngle} and
+ * {@link #roundToNearest15} compute with floating point; those are kept as the reference.
+ */
+final class AngleResolver {
+  /** Fixed point scale of the tangent table. */
+  private static final int SHIFT = 40;
+  /**
+   * {@code TANGENTS[k]} is the smallest fixed point slope whose arc tangent is at least {@code k}
+   * degrees. Slopes are compared as {@code opp << SHIFT >= adj * TANGENTS[k]}, which can't
+   * overflow for offsets below 2^15 pixels.
+   */
+  private static final long[] TANGENTS = new long[90];
+
+  static {
+    for (int k = 1; k < TANGENTS.length; k++) {
+      TANGENTS[k] = (long) Math.ceil(Math.tan(Math.toRadians(k)) * (1L << SHIFT));
+    }
+  }
+
+  private AngleResolver() {
+    // No instances.
+  }
+
+  /**
+   * Returns the minutes (0-720) selected by a touch at the given offset from the center of a
+   * clock whose sweep begins at {@code startAngle}.
+   */
+  static int minutesAt(int dx, int dy, int startAngle) {
+    int angle;
+    if (dx >= 0 && dy < 0) {
+      angle = 270 + degrees(dx, -dy);
+    } else if (dx > 0 && dy >= 0) {
+      angle = degrees(dy, dx);
+    } else if (dx <= 0 && dy > 0) {
+      angle = 90 + degrees(-dx, dy);
+    } else if (dx < 0 && dy <= 0) {
+      angle = 180 + degrees(-dy, -dx);
+    } else {
+      throw new IllegalArgumentException();
+    }
+    return sweepMinutes(angle, startAngle);
+  }
+
+  /**
+   * Returns the whole number of degrees (0-89) of the angle whose tangent is {@code opp / adj}.
+   * Binary searches the tangent table, so this takes at most seven multiplications.
+   */
+  private static int degrees(int opp, int adj) {
+    long scaledOpp = (long) opp << SHIFT;
+    int low = 0;
+    int high = TANGENTS.length - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (scaledOpp >= adj * TANGENTS[mid]) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Convert the angle into a sweep angle. The sweep angle is a positive angle between the start
+   * angle and the touched angle, which is then rounded and doubled into minutes.
+   */
+  static int sweepMinutes(int angle, int startAngle) {
+    angle = 360 + angle - startAngle;
+    int angleX2 = angle * 2;
+    angleX2 = roundToNearest15(angleX2);
+    if (angleX2 > 720) {
+      angleX2 = angleX2 - 720; // avoid mod because we prefer 720 over 0
+    }
+    return angleX2;
+  }
+
+  /**
+   * Returns the number of degrees (0-359) for the given point, such that
+   * 3pm is 0 and 9pm is 180.
+   */
+  static int pointToAngle(int x, int y, int centerX, int centerY) {
+
+        /* Get the angle from a triangle by dividing opposite by adjacent
+         * and taking the atan. This code is careful not to divide by 0.
+         *
+         *
+         *      adj | opp
+         *          |
+         * opp +180 | +270 adj
+         * _________|_________
+         *          |
+         * adj  +90 | +0   opp
+         *          |
+         *      opp | adj
+         *
+         */
+
+    if (x >= centerX && y < centerY) {
+      double opp = x - centerX;
+      double adj = centerY - y;
+      return 270 + (int) Math.toDegrees(Math.atan(opp / adj));
+    } else if (x > centerX && y >= centerY) {
+      double opp = y - centerY;
+      double adj = x - centerX;
+      return (int) Math.toDegrees(Math.atan(opp / adj));
+    } else if (x <= centerX && y > centerY) {
+      double opp = centerX - x;
+      double adj = y - centerY;
+      return 90 + (int) Math.toDegrees(Math.atan(opp / adj));
+    } else if (x < centerX && y <= centerY) {
+      double opp = centerY - y;
+      double adj = centerX - x;
+      return 180 + (int) Math.toDegrees(Math.atan(opp / adj));
+    }
+
+    throw new IllegalArgumentException();
+  }
+
+  /**
+   * Rounds the angle to the nearest 7.5 degrees, which equals 15 minutes on
+   * a clock. Not strictly necessary, but it discourages fat-fingered users
+   * from being frustrated when trying to select a fine-grained period.
+   */
+  static int roundToNearest15(int angleX2) {
+    return ((angleX2 + 8) / 15) * 15;
+  }
+}
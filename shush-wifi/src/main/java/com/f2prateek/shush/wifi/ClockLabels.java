@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import java.text.Format;
+
+/**
+ * The text {@link ClockSlider} draws for each selectable duration. Every label is built ahead of
+ * time, so that looking one up while drawing never formats or allocates.
+ */
+final class ClockLabels {
+  static final int MINUTES_PER_STEP = 15;
+  /** Number of selectable durations, from 0 thru 720 minutes inclusive. */
+  static final int STEPS = ClockMath.MINUTES_PER_HALF_DAY / MINUTES_PER_STEP + 1;
+
+  private final String minutesUnit;
+  private final String hourUnit;
+  private final String hoursUnit;
+  /** Indexed by {@link #step}. */
+  private final String[] durations = new String[STEPS];
+  private final String[] onAts = new String[STEPS];
+
+  ClockLabels(String minutesUnit, String hourUnit, String hoursUnit) {
+    this.minutesUnit = minutesUnit;
+    this.hourUnit = hourUnit;
+    this.hoursUnit = hoursUnit;
+    for (int i = 0; i < STEPS; i++) {
+      durations[i] = ClockMath.durationText(i * MINUTES_PER_STEP);
+    }
+  }
+
+  /**
+   * Format the time at which each selectable duration ends. Only called when the start time or the
+   * time format changes, never while drawing.
+   */
+  void setStart(Format timeFormat, long startMillis) {
+    for (int i = 0; i < STEPS; i++) {
+      onAts[i] = timeFormat.format(startMillis + (i * MINUTES_PER_STEP * 60 * 1000L));
+    }
+  }
+
+  /** Returns the step for {@code minutes}, or -1 if it isn't one of the selectable durations. */
+  static int step(int minutes) {
+    if (minutes < 0 || minutes > ClockMath.MINUTES_PER_HALF_DAY
+        || minutes % MINUTES_PER_STEP != 0) {
+      return -1;
+    }
+    return minutes / MINUTES_PER_STEP;
+  }
+
+  /** Returns the number shown for a step, like "2" or "2 1/2". */
+  String duration(int step) {
+    return durations[step];
+  }
+
+  /** Returns the time a step ends at, as of the last {@link #setStart}. */
+  String onAt(int step) {
+    return onAts[step];
+  }
+
+  /** Returns the units shown below the given duration. */
+  String units(int minutes) {
+    if (minutes < 60) {
+      return minutesUnit;
+    } else if (minutes == 60) {
+      return hourUnit;
+    }
+    return hoursUnit;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import java.text.DateFormat;
+
+/**
+ * The clock slider's math and text that don't need Android, so they can be benchmarked on a
+ * plain JVM.
+ */
+final class ClockMath {
+  static final int MINUTES_PER_HALF_DAY = 720;
+
+  private ClockMath() {
+    // No instances.
+  }
+
+  /**
+   * Returns the angle, in degrees clockwise from 3:00, of the hour hand at the given time of day.
+   */
+  static int startAngle(int hourOfDay, int minute) {
+    int minuteOfHalfDay = hourOfDay * 60 + minute;
+    if (minuteOfHalfDay > MINUTES_PER_HALF_DAY) {
+      minuteOfHalfDay -= MINUTES_PER_HALF_DAY;
+    }
+    int angle = minuteOfHalfDay / 2; // 720 minutes per half-day -> 360 degrees per circle
+    angle += 270; // clocks start at 12:00, but our angles start at 3:00
+    return angle % 360;
+  }
+
+  /**
+   * Returns the number shown for the given duration, like "2" or "2 1/2".
+   */
+  static String durationText(int minutes) {
+    if (minutes < 60) {
+      return Integer.toString(minutes);
+    } else if (minutes % 60 == 0) {
+      return Integer.toString(minutes / 60);
+    } else if (minutes % 60 == 15) {
+      return minutes / 60 + "\u00BC"; // 1/4
+    } else if (minutes % 60 == 30) {
+      return minutes / 60 + "\u00BD"; // 1/2
+    } else if (minutes % 60 == 45) {
+      return minutes / 60 + "\u00BE"; // 3/4
+    }
+    throw new AssertionError();
+  }
+
+  /** Returns {@code template} with the time of {@code onTime} in {@code timeFormat}. */
+  static String untilMessage(String template, DateFormat timeFormat, long onTime) {
+    return String.format(template, timeFormat.format(onTime));
+  }
+}
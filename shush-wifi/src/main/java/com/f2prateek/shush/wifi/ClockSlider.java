@@ -18,26 +18,34 @@
 package com.f2prateek.shush.wifi;
 
 import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Typeface;
 import android.text.format.DateFormat;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.WindowManager;
+import com.f2prateek.shush.wifi.metrics.FrameMonitor;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 
+import static android.content.Context.WINDOW_SERVICE;
+
 /**
  * A slider around a circle, to select a time between now and 12 hours from now.
  */
 final class ClockSlider extends View {
   private static final int INSETS = 6;
-  private static final int MINUTES_PER_HALF_DAY = 720;
 
   private int width;
   private int height;
@@ -48,6 +56,16 @@ final class ClockSlider extends View {
   private final RectF innerCircle = new RectF();
   private final RectF buttonCircle = new RectF();
   private final Path path = new Path();
+  /** The colored and white parts of the circle, rebuilt only when the sweep changes. */
+  private final Path sliderPath = new Path();
+  private final Path selectedPath = new Path();
+  private boolean sweepDirty = true;
+  /** Bounds to invalidate when only the button highlights change. */
+  private final Rect buttonBounds = new Rect();
+  /** Bounds to invalidate when the sweep and labels change. */
+  private final Rect clockBounds = new Rect();
+  /** The grey ring and idle buttons, which only change when the view is resized. */
+  private Bitmap chrome;
 
   private Paint lightGrey = new Paint();
   private Paint sliderPaint = new Paint();
@@ -67,9 +85,38 @@ final class ClockSlider extends View {
   private boolean upPushed;
   private boolean downPushed;
 
+  /** When true, slider drags are applied once per frame instead of once per touch event. */
+  private boolean coalesceTouches = true;
+  /** The latest minutes dragged to but not yet applied, or -1 if there are none. */
+  private int pendingMinutes = -1;
+  private boolean frameCallbackPosted;
+  private final Choreographer.FrameCallback applyPendingMinutes =
+      new Choreographer.FrameCallback() {
+        @Override public void doFrame(long frameTimeNanos) {
+          frameCallbackPosted = false;
+          flushPendingMinutes();
+        }
+      };
+  /** Touch samples delivered to this view, including batched historical ones. */
+  private int touchEventsReceived;
+  /** Invalidations requested by this view. */
+  private int redrawsIssued;
+  /** Frame timing of touch gestures, to tell how smooth dragging is on this device. */
+  private final FrameMonitor frameMonitor;
+
+  /** Labels for each selectable duration; the "on at" times are rebuilt with the start. */
+  private final ClockLabels labels;
+
+  public ClockSlider(Context context) {
+    this(context, null);
+  }
+
   public ClockSlider(Context context, AttributeSet attrs) {
     super(context, attrs);
 
+    WindowManager windowManager = ShushModule.getSystemService(context, WINDOW_SERVICE);
+    frameMonitor = new FrameMonitor(windowManager.getDefaultDisplay().getRefreshRate());
+
     lightGrey.setColor(Color.rgb(115, 115, 115));
     lightGrey.setAntiAlias(true);
     sliderPaint.setColor(Color.rgb(255, 0, 165));
@@ -90,13 +137,20 @@ final class ClockSlider extends View {
     percentPaint.setColor(lightGrey.getColor());
     buttonCirclePaint.setColor(Color.argb(102, 115, 115, 115));
     buttonCirclePaint.setAntiAlias(true);
+
+    Resources resources = getResources();
+    labels = new ClockLabels(resources.getString(R.string.minutes),
+        resources.getString(R.string.hour), resources.getString(R.string.hours));
+    buildOnAtLabels();
   }
 
   public void setColor(int color) {
     sliderPaint.setColor(color);
+    invalidateBounds(clockBounds);
   }
 
   @Override protected void onDraw(Canvas canvas) {
+    long drawStart = frameMonitor.beginDraw();
     super.onDraw(canvas);
 
     if (getWidth() != width || getHeight() != height) {
@@ -127,10 +181,19 @@ final class ClockSlider extends View {
       durationUnits.setTextSize(diameter * 0.10f);
       unshushTime.setTextSize(diameter * 0.13f);
       percentPaint.setTextSize(diameter * 0.08f);
+
+      outerCircle.roundOut(clockBounds);
+      buttonCircle.roundOut(buttonBounds);
+      sweepDirty = true;
+      drawChrome();
     }
 
+    if (chrome != null) {
+      canvas.drawBitmap(chrome, 0, 0, null);
+    }
     drawClock(canvas);
     drawClockTextAndButtons(canvas);
+    frameMonitor.endDraw(drawStart);
   }
 
   public Date getStart() {
@@ -139,13 +202,11 @@ final class ClockSlider extends View {
 
   public void setStart(Date now) {
     start.setTime(now);
-    int minuteOfHalfDay = start.get(Calendar.HOUR_OF_DAY) * 60 + start.get(Calendar.MINUTE);
-    if (minuteOfHalfDay > MINUTES_PER_HALF_DAY) {
-      minuteOfHalfDay -= MINUTES_PER_HALF_DAY;
-    }
-    int angle = minuteOfHalfDay / 2; // 720 minutes per half-day -> 360 degrees per circle
-    angle += 270; // clocks start at 12:00, but our angles start at 3:00
-    startAngle = angle % 360;
+    end.setTimeInMillis(start.getTimeInMillis() + (minutes * 60 * 1000L));
+    buildOnAtLabels();
+    startAngle = ClockMath.startAngle(start.get(Calendar.HOUR_OF_DAY), start.get(Calendar.MINUTE));
+    sweepDirty = true;
+    redrawsIssued++;
     postInvalidate();
   }
 
@@ -159,39 +220,94 @@ final class ClockSlider extends View {
     }
     this.minutes = minutes;
     end.setTimeInMillis(start.getTimeInMillis() + (this.minutes * 60 * 1000L));
-    postInvalidate();
+    sweepDirty = true;
+    invalidateBounds(clockBounds);
   }
 
   public Date getEnd() {
     return end.getTime();
   }
 
+  @Override protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    buildOnAtLabels(); // the user may have switched between 12 and 24 hour time
+  }
+
+  @Override protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    flushPendingMinutes();
+    frameMonitor.stop();
+    if (chrome != null) {
+      chrome.recycle();
+      chrome = null;
+    }
+    width = 0; // rebuild the chrome if we're attached again
+    height = 0;
+  }
+
+  @Override protected void onConfigurationChanged(Configuration newConfig) {
+    super.onConfigurationChanged(newConfig);
+    buildOnAtLabels(); // the locale may have changed
+  }
+
+  private void buildOnAtLabels() {
+    labels.setStart(DateFormat.getTimeFormat(getContext()), start.getTimeInMillis());
+  }
+
   /**
-   * Draw a circle and an arc of the selected duration from start thru end.
+   * Render the parts of the clock that don't change while the user drags: the grey ring and the
+   * idle up/down buttons. Called only when the view's size changes.
+   */
+  private void drawChrome() {
+    if (chrome != null) {
+      chrome.recycle();
+      chrome = null;
+    }
+    if (width <= 0 || height <= 0) {
+      return;
+    }
+    chrome = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(chrome);
+
+    // the grey empty circle, which the selected duration is drawn over
+    path.reset();
+    path.addOval(outerCircle, Path.Direction.CW);
+    path.addOval(innerCircle, Path.Direction.CCW);
+    canvas.drawPath(path, lightGrey);
+
+    drawButtons(canvas, lightGrey, lightGrey);
+  }
+
+  /**
+   * Draw an arc of the selected duration from start thru end over the grey circle.
    */
   private void drawClock(Canvas canvas) {
     int sweepDegrees = (minutes / 2) - 1;
 
-    // the colored "filled" part of the circle
-    drawArc(canvas, startAngle, sweepDegrees, sliderPaint);
+    if (sweepDirty) {
+      // the colored "filled" part of the circle
+      buildArc(sliderPath, startAngle, sweepDegrees);
 
-    // the white selected part of the circle
-    drawArc(canvas, startAngle + sweepDegrees, 2, white);
+      // the white selected part of the circle
+      buildArc(selectedPath, startAngle + sweepDegrees, 2);
+      sweepDirty = false;
+    }
 
-    // the grey empty part of the circle
-    drawArc(canvas, startAngle + sweepDegrees + 2, 360 - sweepDegrees - 2, lightGrey);
+    if (sweepDegrees > 0) {
+      canvas.drawPath(sliderPath, sliderPaint);
+      canvas.drawPath(selectedPath, white);
+    }
   }
 
-  private void drawArc(Canvas canvas, int startAngle, int sweepDegrees, Paint paint) {
+  private void buildArc(Path path, int startAngle, int sweepDegrees) {
+    path.reset();
     if (sweepDegrees <= 0) {
       return;
     }
 
-    path.reset();
     path.arcTo(outerCircle, startAngle, sweepDegrees);
     path.arcTo(innerCircle, startAngle + sweepDegrees, -sweepDegrees);
     path.close();
-    canvas.drawPath(path, paint);
   }
 
   /**
@@ -243,44 +359,41 @@ final class ClockSlider extends View {
     }
 
     String durationText;
-    int durationUnitsId;
-    long timeInMillis = end.getTimeInMillis();
-    String onAtText = DateFormat.getTimeFormat(getContext()).format(timeInMillis);
-    if (minutes < 60) {
-      durationText = Integer.toString(minutes);
-      durationUnitsId = R.string.minutes;
-    } else if (minutes == 60) {
-      durationText = "1";
-      durationUnitsId = R.string.hour;
-    } else if (minutes % 60 == 0) {
-      durationText = Integer.toString(minutes / 60);
-      durationUnitsId = R.string.hours;
-    } else if (minutes % 60 == 15) {
-      durationText = minutes / 60 + "\u00BC"; // 1/4
-      durationUnitsId = R.string.hours;
-    } else if (minutes % 60 == 30) {
-      durationText = minutes / 60 + "\u00BD"; // 1/2
-      durationUnitsId = R.string.hours;
-    } else if (minutes % 60 == 45) {
-      durationText = minutes / 60 + "\u00BE"; // 3/4
-      durationUnitsId = R.string.hours;
+    String onAtText;
+    int step = ClockLabels.step(minutes);
+    if (step != -1) {
+      durationText = labels.duration(step);
+      onAtText = labels.onAt(step);
     } else {
-      throw new AssertionError();
+      // Not one of our steps, so it can't be in the tables; should only happen with stale state.
+      durationText = ClockMath.durationText(minutes);
+      onAtText = DateFormat.getTimeFormat(getContext()).format(end.getTimeInMillis());
     }
-    String durationUnitsText = getResources().getString(durationUnitsId);
+    String durationUnitsText = labels.units(minutes);
     canvas.drawText(durationText, centerX, centerY - (diameter * 0.08f), duration);
     canvas.drawText(durationUnitsText, centerX, centerY + (diameter * 0.06f), durationUnits);
     canvas.drawText(onAtText, centerX, centerY + (diameter * 0.25f), unshushTime);
 
-    // up/down buttons
-    Paint downPaint = downPushed ? white : lightGrey;
-    canvas.drawRect(centerX - diameter * 0.32f, centerY - diameter * 0.01f,
-        centerX - diameter * 0.22f, centerY + diameter * 0.01f, downPaint);
-    Paint upPaint = upPushed ? white : lightGrey;
-    canvas.drawRect(centerX + diameter * 0.22f, centerY - diameter * 0.01f,
-        centerX + diameter * 0.32f, centerY + diameter * 0.01f, upPaint);
-    canvas.drawRect(centerX + diameter * 0.26f, centerY - diameter * 0.05f,
-        centerX + diameter * 0.28f, centerY + diameter * 0.05f, upPaint);
+    // up/down buttons; the idle ones are already in the chrome
+    if (upPushed || downPushed) {
+      drawButtons(canvas, downPushed ? white : null, upPushed ? white : null);
+    }
+  }
+
+  /**
+   * Draw the "-" and "+" buttons, skipping either if its paint is null.
+   */
+  private void drawButtons(Canvas canvas, Paint downPaint, Paint upPaint) {
+    if (downPaint != null) {
+      canvas.drawRect(centerX - diameter * 0.32f, centerY - diameter * 0.01f,
+          centerX - diameter * 0.22f, centerY + diameter * 0.01f, downPaint);
+    }
+    if (upPaint != null) {
+      canvas.drawRect(centerX + diameter * 0.22f, centerY - diameter * 0.01f,
+          centerX + diameter * 0.32f, centerY + diameter * 0.01f, upPaint);
+      canvas.drawRect(centerX + diameter * 0.26f, centerY - diameter * 0.05f,
+          centerX + diameter * 0.28f, centerY + diameter * 0.05f, upPaint);
+    }
   }
 
   /**
@@ -292,11 +405,22 @@ final class ClockSlider extends View {
       return true; // ignore all events until the canvas is drawn
     }
 
+    // Only the latest sample matters, so batched historical samples are counted but not replayed.
+    touchEventsReceived += event.getHistorySize() + 1;
+    int action = event.getActionMasked();
+    if (action == MotionEvent.ACTION_DOWN) {
+      frameMonitor.start();
+    } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+      frameMonitor.stop();
+    }
+    boolean moving = action == MotionEvent.ACTION_MOVE;
+    if (!moving) {
+      flushPendingMinutes(); // apply the drag before acting on the down, up or cancel
+    }
+
     int touchX = (int) event.getX();
     int touchY = (int) event.getY();
 
-    upPushed = false;
-    downPushed = false;
     int distanceFromCenterX = centerX - touchX;
     int distanceFromCenterY = centerY - touchY;
     int distanceFromCenterSquared =
@@ -310,15 +434,11 @@ final class ClockSlider extends View {
 
       if (event.getAction() == MotionEvent.ACTION_DOWN
           || event.getAction() == MotionEvent.ACTION_MOVE) {
-        if (up) {
-          upPushed = true;
-        } else {
-          downPushed = true;
-        }
-        postInvalidate();
+        setButtonsPushed(up, !up);
         return true;
       }
 
+      setButtonsPushed(false, false);
       int angle = up ? (15 + minutes) : (705 + minutes);
       if (angle > 720) {
         angle -= 720;
@@ -328,24 +448,79 @@ final class ClockSlider extends View {
 
       // if it's on the slider, handle that
     } else if (distanceFromCenterSquared < (maxSlider * maxSlider)) {
-      int angle = pointToAngle(touchX, touchY);
-            /*
-             * Convert the angle into a sweep angle. The sweep angle is a positive
-             * angle between the start angle and the touched angle.
-             */
-      angle = 360 + angle - startAngle;
-      int angleX2 = angle * 2;
-      angleX2 = roundToNearest15(angleX2);
-      if (angleX2 > 720) {
-        angleX2 = angleX2 - 720; // avoid mod because we prefer 720 over 0
+      setButtonsPushed(false, false);
+      int touchedMinutes = AngleResolver.minutesAt(touchX - centerX, touchY - centerY, startAngle);
+      if (coalesceTouches && moving) {
+        pendingMinutes = touchedMinutes;
+        if (!frameCallbackPosted) {
+          frameCallbackPosted = true;
+          Choreographer.getInstance().postFrameCallback(applyPendingMinutes);
+        }
+      } else {
+        setMinutes(touchedMinutes);
       }
-      setMinutes(angleX2);
       return true;
     } else {
+      setButtonsPushed(false, false);
       return false;
     }
   }
 
+  /**
+   * Update the button highlights, repainting only the buttons and only if they changed.
+   */
+  private void setButtonsPushed(boolean up, boolean down) {
+    if (up == upPushed && down == downPushed) {
+      return;
+    }
+    upPushed = up;
+    downPushed = down;
+    invalidateBounds(buttonBounds);
+  }
+
+  private void invalidateBounds(Rect bounds) {
+    redrawsIssued++;
+    postInvalidate(bounds.left, bounds.top, bounds.right, bounds.bottom);
+  }
+
+  /**
+   * Set whether slider drags should be coalesced, so that however many touch events arrive in a
+   * frame, only the latest is applied at the next vsync.
+   */
+  public void setCoalesceTouches(boolean coalesceTouches) {
+    this.coalesceTouches = coalesceTouches;
+    if (!coalesceTouches) {
+      flushPendingMinutes();
+    }
+  }
+
+  /** Returns the number of touch samples received, for comparison with {@link #getRedraws}. */
+  public int getTouchEventsReceived() {
+    return touchEventsReceived;
+  }
+
+  /** Returns the number of times this view asked to be redrawn. */
+  public int getRedraws() {
+    return redrawsIssued;
+  }
+
+  /** Returns the frame timing recorded while this view was being dragged. */
+  public FrameMonitor getFrameMonitor() {
+    return frameMonitor;
+  }
+
+  private void flushPendingMinutes() {
+    if (frameCallbackPosted) {
+      Choreographer.getInstance().removeFrameCallback(applyPendingMinutes);
+      frameCallbackPosted = false;
+    }
+    if (pendingMinutes != -1) {
+      int minutes = pendingMinutes;
+      pendingMinutes = -1;
+      setMinutes(minutes);
+    }
+  }
+
   /**
    * Returns a volume fraction that's in permitted bounds. We don't let the
    * volume go too low (what would be the point!) or above 100%.
@@ -366,55 +541,4 @@ final class ClockSlider extends View {
     int maxHeight = (int) Math.min(height, width * 0.7);
     setMeasuredDimension(width, maxHeight);
   }
-
-  /**
-   * Returns the number of degrees (0-359) for the given point, such that
-   * 3pm is 0 and 9pm is 180.
-   */
-  private int pointToAngle(int x, int y) {
-
-        /* Get the angle from a triangle by dividing opposite by adjacent
-         * and taking the atan. This code is careful not to divide by 0.
-         *
-         *
-         *      adj | opp
-         *          |
-         * opp +180 | +270 adj
-         * _________|_________
-         *          |
-         * adj  +90 | +0   opp
-         *          |
-         *      opp | adj
-         *
-         */
-
-    if (x >= centerX && y < centerY) {
-      double opp = x - centerX;
-      double adj = centerY - y;
-      return 270 + (int) Math.toDegrees(Math.atan(opp / adj));
-    } else if (x > centerX && y >= centerY) {
-      double opp = y - centerY;
-      double adj = x - centerX;
-      return (int) Math.toDegrees(Math.atan(opp / adj));
-    } else if (x <= centerX && y > centerY) {
-      double opp = centerX - x;
-      double adj = y - centerY;
-      return 90 + (int) Math.toDegrees(Math.atan(opp / adj));
-    } else if (x < centerX && y <= centerY) {
-      double opp = centerY - y;
-      double adj = centerX - x;
-      return 180 + (int) Math.toDegrees(Math.atan(opp / adj));
-    }
-
-    throw new IllegalArgumentException();
-  }
-
-  /**
-   * Rounds the angle to the nearest 7.5 degrees, which equals 15 minutes on
-   * a clock. Not strictly necessary, but it discourages fat-fingered users
-   * from being frustrated when trying to select a fine-grained period.
-   */
-  private int roundToNearest15(int angleX2) {
-    return ((angleX2 + 8) / 15) * 15;
-  }
 }
@@ -24,6 +24,12 @@ final class Modules {
     };
   }
 
+  static Object[] uiList() {
+    return new Object[] {
+        new UiModule()
+    };
+  }
+
   private Modules() {
     // No instances.
   }
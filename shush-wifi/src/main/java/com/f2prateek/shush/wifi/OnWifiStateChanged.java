@@ -21,41 +21,104 @@ import android.app.AlarmManager;
 import android.app.NotificationManager;
 import android.content.Context;
 import android.content.Intent;
+import android.net.wifi.WifiManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import com.f2prateek.ln.Ln;
 import com.f2prateek.shush.wifi.base.BaseBroadcastReceiver;
+import com.f2prateek.shush.wifi.energy.EnergyLedger;
+import com.f2prateek.shush.wifi.history.WifiEventLog;
+import com.f2prateek.shush.wifi.metrics.Metrics;
+import com.f2prateek.shush.wifi.schedule.ScheduleJournal;
+import java.util.concurrent.Executor;
 import javax.inject.Inject;
 
 import static android.net.wifi.WifiManager.EXTRA_WIFI_STATE;
-import static android.net.wifi.WifiManager.WIFI_STATE_DISABLED;
-import static android.net.wifi.WifiManager.WIFI_STATE_DISABLING;
-import static android.net.wifi.WifiManager.WIFI_STATE_ENABLED;
-import static android.net.wifi.WifiManager.WIFI_STATE_ENABLING;
 
 /**
  * Shows a dialog if the wifi is turned off, else turns it off.
+ * <p>
+ * When the wifi flaps, the state it ends up in is acted on once the flap window has passed, so a
+ * quick toggle isn't lost.
  */
 public class OnWifiStateChanged extends BaseBroadcastReceiver {
+  private static final Handler MAIN_THREAD = new Handler(Looper.getMainLooper());
+
   @Inject NotificationManager notificationManager;
   @Inject AlarmManager alarmManager;
+  @Inject WifiManager wifiManager;
+  @Inject Executor backgroundExecutor;
+  @Inject WifiStateCoalescer wifiStateCoalescer;
+  @Inject WifiEventLog wifiEventLog;
+  @Inject EnergyLedger energyLedger;
+  @Inject ScheduleJournal scheduleJournal;
+  @Inject SchedulerPrompt schedulerPrompt;
+  @Inject QuietHoursScheduler quietHoursScheduler;
 
-  public void onReceive(Context context, Intent intent) {
-    super.onReceive(context, intent);
+  @Override protected void onReceiveInBackground(Context context, Intent intent) {
+    long start = Metrics.begin();
     int newWifiState = intent.getIntExtra(EXTRA_WIFI_STATE, -1);
+    int action = wifiStateCoalescer.onStateChanged(newWifiState, SystemClock.elapsedRealtime());
+    if (action == WifiStateCoalescer.FLAPPING) {
+      settleLater(context.getApplicationContext());
+    } else if (action == WifiStateCoalescer.NONE) {
+      Ln.d("Ignoring wifi state %d; %d of %d broadcasts acted on.", newWifiState,
+          wifiStateCoalescer.actionsTaken(), wifiStateCoalescer.broadcastsReceived());
+    } else {
+      act(context, action, start);
+    }
+    Metrics.end(Metrics.WIFI_STATE_RECEIVE, start);
+  }
 
-    switch (newWifiState) {
-      case WIFI_STATE_DISABLED:
-      case WIFI_STATE_DISABLING:
+  /** Check the state the wifi settled in once the flap window has passed. */
+  private void settleLater(final Context context) {
+    final Runnable settle = new Runnable() {
+      @Override public void run() {
+        long start = Metrics.begin();
+        int action = wifiStateCoalescer.settle(wifiManager.getWifiState(),
+            SystemClock.elapsedRealtime());
+        if (action != WifiStateCoalescer.NONE) {
+          act(context, action, start);
+        }
+      }
+    };
+    MAIN_THREAD.postDelayed(new Runnable() {
+      @Override public void run() {
+        backgroundExecutor.execute(settle);
+      }
+    }, wifiStateCoalescer.flapWindowMillis());
+  }
+
+  private void act(Context context, int action, long start) {
+    switch (action) {
+      case WifiStateCoalescer.TURNED_OFF:
         // Wifi has been disabled, show the user the dialog
-        context.startActivity(WifiSchedulerDialog.getIntent(context));
+        long now = System.currentTimeMillis();
+        wifiEventLog.append(now, WifiEventLog.WIFI_OFF, 0, 0);
+        if (quietHoursScheduler.isQuiet(now)) {
+          Ln.d("Wifi turned off during quiet hours, which turn it back on themselves.");
+          break;
+        }
+        schedulerPrompt.show(start);
         break;
-      case WIFI_STATE_ENABLED:
-      case WIFI_STATE_ENABLING:
+      case WifiStateCoalescer.TURNED_ON:
         // Wifi has been enabled, dismiss any existing dialogs and scheduled tasks
         WifiTurnedOffNotification.dismiss(notificationManager);
-        TurnWifiOn.cancelScheduled(alarmManager, context);
+        TurnWifiOn.restoreEarly(alarmManager, context);
+        scheduleJournal.clear();
+        energyLedger.windowClosed(System.currentTimeMillis());
+        logWifiOn();
         break;
       default:
-        Ln.d("Ignoring unknown wifi state change.");
+        throw new IllegalArgumentException("Unknown action " + action);
     }
   }
+
+  private void logWifiOn() {
+    long now = System.currentTimeMillis();
+    int off = wifiEventLog.lastIndexOf(WifiEventLog.WIFI_OFF);
+    int offMinutes = off == -1 ? 0 : (int) ((now - wifiEventLog.timeMillisAt(off)) / 60000);
+    wifiEventLog.append(now, WifiEventLog.WIFI_ON, 0, offMinutes);
+  }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import android.app.Application;
+import android.content.ComponentName;
+import com.f2prateek.shush.wifi.prefs.BooleanPreference;
+import com.f2prateek.shush.wifi.prefs.Paused;
+import java.util.concurrent.Executor;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static android.content.pm.PackageManager.COMPONENT_ENABLED_STATE_DEFAULT;
+import static android.content.pm.PackageManager.COMPONENT_ENABLED_STATE_DISABLED;
+import static android.content.pm.PackageManager.DONT_KILL_APP;
+
+/**
+ * Pauses and resumes Shush. While paused, {@link OnWifiStateChanged} is disabled in the manifest,
+ * so Wi-Fi changes don't start our process at all.
+ */
+@Singleton
+public final class PauseController {
+  private final Application app;
+  private final Executor backgroundExecutor;
+  private final BooleanPreference pausedPreference;
+
+  @Inject PauseController(Application app, Executor backgroundExecutor,
+      @Paused BooleanPreference pausedPreference) {
+    this.app = app;
+    this.backgroundExecutor = backgroundExecutor;
+    this.pausedPreference = pausedPreference;
+  }
+
+  public boolean isPaused() {
+    return pausedPreference.get();
+  }
+
+  /** Must be called on the main thread. */
+  public void setPaused(final boolean paused) {
+    pausedPreference.set(paused);
+    backgroundExecutor.execute(new Runnable() {
+      @Override public void run() {
+        app.getPackageManager()
+            .setComponentEnabledSetting(new ComponentName(app, OnWifiStateChanged.class),
+                paused ? COMPONENT_ENABLED_STATE_DISABLED : COMPONENT_ENABLED_STATE_DEFAULT,
+                DONT_KILL_APP);
+      }
+    });
+  }
+}
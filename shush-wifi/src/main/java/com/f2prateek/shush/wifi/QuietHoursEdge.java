@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import com.f2prateek.ln.Ln;
+import com.f2prateek.shush.wifi.base.BaseBroadcastReceiver;
+import com.f2prateek.shush.wifi.prefs.IntPreference;
+import com.f2prateek.shush.wifi.prefs.PreferenceStore;
+import com.f2prateek.shush.wifi.prefs.QuietHoursRadios;
+import com.f2prateek.shush.wifi.prefs.ShushedRadios;
+import com.f2prateek.shush.wifi.radio.Radios;
+import com.f2prateek.shush.wifi.schedule.ScheduleJournal;
+import javax.inject.Inject;
+
+import static android.app.PendingIntent.FLAG_NO_CREATE;
+import static android.app.PendingIntent.FLAG_UPDATE_CURRENT;
+
+/**
+ * Turns the radios off or back on when quiet hours start or end, then registers the next change.
+ * Also registers it again after a reboot or a time zone change. Disabled in the manifest, and
+ * only enabled by {@link QuietHoursScheduler} while there are quiet hours.
+ * <p>
+ * Like {@link WifiScheduler}, only the radios quiet hours turned off are turned back on; the ones
+ * that were already off stay off.
+ */
+public final class QuietHoursEdge extends BaseBroadcastReceiver {
+  static PendingIntent createPendingIntent(Context context) {
+    Intent intent = new Intent(context, QuietHoursEdge.class);
+    return PendingIntent.getBroadcast(context, 0, intent, FLAG_UPDATE_CURRENT);
+  }
+
+  /** Returns the registered edge, or null if there isn't one. */
+  static PendingIntent findScheduled(Context context) {
+    Intent intent = new Intent(context, QuietHoursEdge.class);
+    return PendingIntent.getBroadcast(context, 0, intent, FLAG_NO_CREATE);
+  }
+
+  @Inject QuietHoursScheduler quietHoursScheduler;
+  @Inject Radios radios;
+  @Inject ScheduleJournal scheduleJournal;
+  @Inject PreferenceStore preferenceStore;
+  @Inject @ShushedRadios IntPreference shushedRadiosPreference;
+  /** The radios quiet hours turned off, to turn back on when they end. */
+  @Inject @QuietHoursRadios IntPreference quietHoursRadiosPreference;
+
+  @Override protected void onReceiveInBackground(Context context, Intent intent) {
+    if (intent.getAction() == null) {
+      // Our alarm. Go by the schedule rather than the alarm, which may have been delivered late.
+      if (quietHoursScheduler.isQuiet(System.currentTimeMillis())) {
+        int turnedOff = radios.disable(shushedRadiosPreference.get() | Radios.WIFI);
+        Ln.i("Quiet hours started, turned off radios %d.", turnedOff);
+        quietHoursRadiosPreference.set(quietHoursRadiosPreference.get() | turnedOff);
+      } else {
+        int turnedOff = quietHoursRadiosPreference.get();
+        ScheduleJournal.Entry entry = scheduleJournal.read();
+        if (entry != null) {
+          // The user's shush turns its own radios back on when it ends.
+          turnedOff &= ~entry.radios;
+        }
+        Ln.i("Quiet hours ended, turning on radios %d.", turnedOff);
+        radios.enable(turnedOff);
+        quietHoursRadiosPreference.delete();
+      }
+      // The process may not live long enough for the store to write these on its own.
+      preferenceStore.flush();
+    }
+    quietHoursScheduler.reschedule();
+  }
+}
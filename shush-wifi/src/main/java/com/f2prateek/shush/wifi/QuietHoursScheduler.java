@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import android.app.AlarmManager;
+import android.app.Application;
+import android.app.PendingIntent;
+import android.content.ComponentName;
+import com.f2prateek.shush.wifi.prefs.QuietHours;
+import com.f2prateek.shush.wifi.prefs.StringPreference;
+import com.f2prateek.shush.wifi.schedule.Edge;
+import com.f2prateek.shush.wifi.schedule.Precision;
+import com.f2prateek.shush.wifi.schedule.ScheduleEngine;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static android.content.pm.PackageManager.COMPONENT_ENABLED_STATE_DEFAULT;
+import static android.content.pm.PackageManager.COMPONENT_ENABLED_STATE_ENABLED;
+import static android.content.pm.PackageManager.DONT_KILL_APP;
+import static com.f2prateek.shush.wifi.schedule.ScheduleEngine.MINUTES_PER_DAY;
+
+/**
+ * Keeps Wi-Fi, and the radios shushed with it, off during the quiet hours the user picked. Only
+ * the next change is registered with the alarm manager; {@link QuietHoursEdge} registers the one
+ * after it when it fires.
+ */
+@Singleton
+public final class QuietHoursScheduler {
+  public static final int DEFAULT_START_MINUTE = 23 * 60;
+  public static final int DEFAULT_END_MINUTE = 7 * 60;
+  private static final int EVERY_DAY = 0x7f;
+
+  private final Application app;
+  private final Executor backgroundExecutor;
+  private final AlarmManager alarmManager;
+  private final StringPreference quietHoursPreference;
+
+  /** Rebuilt when the windows or the time zone change. Guarded by this. */
+  private ScheduleEngine engine;
+  private String engineWindows;
+  private TimeZone engineTimeZone;
+
+  private final Runnable reschedule = new Runnable() {
+    @Override public void run() {
+      reschedule();
+    }
+  };
+
+  @Inject QuietHoursScheduler(Application app, Executor backgroundExecutor,
+      AlarmManager alarmManager, @QuietHours StringPreference quietHoursPreference) {
+    this.app = app;
+    this.backgroundExecutor = backgroundExecutor;
+    this.alarmManager = alarmManager;
+    this.quietHoursPreference = quietHoursPreference;
+  }
+
+  public boolean isEnabled() {
+    return quietHoursPreference.isSet();
+  }
+
+  /** Returns the minute of the day quiet hours start, or -1 if there are none. */
+  public synchronized int startMinuteOfDay() {
+    ScheduleEngine windows = engine();
+    return windows.weeklyCount() == 0 ? -1 : windows.weeklyStart(0) % MINUTES_PER_DAY;
+  }
+
+  /** Returns the minute of the day quiet hours end, or -1 if there are none. */
+  public synchronized int endMinuteOfDay() {
+    ScheduleEngine windows = engine();
+    return windows.weeklyCount() == 0 ? -1 : windows.weeklyEnd(0) % MINUTES_PER_DAY;
+  }
+
+  /** Be quiet every day from {@code startMinuteOfDay}, until {@code endMinuteOfDay}. */
+  public void setEveryDay(int startMinuteOfDay, int endMinuteOfDay) {
+    ScheduleEngine windows = new ScheduleEngine(TimeZone.getDefault());
+    windows.addWeekly(EVERY_DAY, startMinuteOfDay, endMinuteOfDay);
+    quietHoursPreference.set(windows.encode());
+    backgroundExecutor.execute(reschedule);
+  }
+
+  public void disable() {
+    quietHoursPreference.delete();
+    backgroundExecutor.execute(reschedule);
+  }
+
+  /** Returns true if the radios should be off at {@code timeMillis}. */
+  public synchronized boolean isQuiet(long timeMillis) {
+    return engine().isOff(timeMillis);
+  }
+
+  /**
+   * Register the next change with the alarm manager, or cancel the registered one if nothing will
+   * change. Call on the background executor.
+   */
+  public synchronized void reschedule() {
+    // The edge receiver also re-registers after a reboot, so it should only run when it's needed.
+    app.getPackageManager()
+        .setComponentEnabledSetting(new ComponentName(app, QuietHoursEdge.class),
+            isEnabled() ? COMPONENT_ENABLED_STATE_ENABLED : COMPONENT_ENABLED_STATE_DEFAULT,
+            DONT_KILL_APP);
+
+    Edge edge = engine().nextEdge(System.currentTimeMillis());
+    if (edge == null) {
+      PendingIntent scheduled = QuietHoursEdge.findScheduled(app);
+      if (scheduled != null) {
+        alarmManager.cancel(scheduled);
+        scheduled.cancel();
+      }
+      return;
+    }
+    TurnWifiOn.schedule(alarmManager, QuietHoursEdge.createPendingIntent(app), edge.timeMillis,
+        Precision.EXACT, 0);
+  }
+
+  private ScheduleEngine engine() {
+    String windows = quietHoursPreference.get();
+    TimeZone timeZone = TimeZone.getDefault();
+    if (engine == null || !timeZone.equals(engineTimeZone)
+        || !(windows == null ? engineWindows == null : windows.equals(engineWindows))) {
+      engine = ScheduleEngine.decode(windows, timeZone);
+      engineWindows = windows;
+      engineTimeZone = timeZone;
+    }
+    return engine;
+  }
+}
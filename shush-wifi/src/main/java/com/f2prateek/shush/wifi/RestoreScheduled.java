@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import com.f2prateek.ln.Ln;
+import com.f2prateek.shush.wifi.schedule.ScheduleJournal;
+import java.io.File;
+
+import static android.content.Context.ALARM_SERVICE;
+
+/**
+ * Re-arms the alarm to turn the wifi on from the {@link ScheduleJournal}, after a reboot has
+ * dropped it. A restore that is already overdue is delivered right away.
+ * <p>
+ * This doesn't extend {@link com.f2prateek.shush.wifi.base.BaseBroadcastReceiver}; reading a few
+ * bytes shouldn't wait on the object graph, and most boots have nothing scheduled.
+ */
+public final class RestoreScheduled extends BroadcastReceiver {
+  @Override public void onReceive(Context context, Intent intent) {
+    File file = new File(context.getFilesDir(), ScheduleJournal.FILE_NAME);
+    ScheduleJournal.Entry entry = new ScheduleJournal(file).read();
+    if (entry == null) {
+      return;
+    }
+
+    PendingIntent ringerOn =
+        TurnWifiOn.createPendingIntent(context, entry.onTime, entry.precision, entry.radios);
+    if (entry.onTime <= System.currentTimeMillis()) {
+      Ln.i("Restoring radios %d, overdue since %d.", entry.radios, entry.onTime);
+      try {
+        ringerOn.send();
+      } catch (PendingIntent.CanceledException e) {
+        Ln.e(e, "Could not restore overdue radios.");
+      }
+      return;
+    }
+
+    AlarmManager alarmManager = ShushModule.getSystemService(context, ALARM_SERVICE);
+    TurnWifiOn.schedule(alarmManager, ringerOn, entry.onTime, entry.precision,
+        entry.toleranceMillis);
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.graphics.PixelFormat;
+import android.os.Handler;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+import butterknife.ButterKnife;
+import butterknife.InjectView;
+import butterknife.OnClick;
+import com.f2prateek.shush.wifi.metrics.Metrics;
+import com.f2prateek.shush.wifi.prefs.Color;
+import com.f2prateek.shush.wifi.prefs.IntPreference;
+import java.util.Date;
+import javax.inject.Inject;
+
+import static android.content.Context.WINDOW_SERVICE;
+import static android.net.wifi.WifiManager.EXTRA_WIFI_STATE;
+import static android.net.wifi.WifiManager.WIFI_STATE_ENABLED;
+import static android.net.wifi.WifiManager.WIFI_STATE_ENABLING;
+import static android.view.Gravity.BOTTOM;
+import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+import static android.view.ViewGroup.LayoutParams.WRAP_CONTENT;
+import static android.view.WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE;
+import static android.view.WindowManager.LayoutParams.FLAG_WATCH_OUTSIDE_TOUCH;
+import static android.view.WindowManager.LayoutParams.TYPE_SYSTEM_ALERT;
+
+/**
+ * The {@link ClockSlider} in a system overlay window, with the same choices as
+ * {@link WifiSchedulerDialog}. Only used on the main thread.
+ */
+final class SchedulerOverlay {
+  interface Callback {
+    void onDismissed();
+  }
+
+  /** cancel shush after 60 seconds of inactivity */
+  private static final long TIMEOUT_MILLIS = 60 * 1000;
+  /** observe broadcast wifi state changes */
+  private static final IntentFilter WIFI_STATE_CHANGED =
+      new IntentFilter("android.net.wifi.WIFI_STATE_CHANGED");
+
+  private final Context context;
+  private final WindowManager windowManager;
+  private final Callback callback;
+  private final Handler handler = new Handler();
+
+  @Inject WifiScheduler wifiScheduler;
+  @Inject @Color IntPreference colorPreference;
+
+  private View view;
+  @InjectView(R.id.clock_slider) ClockSlider clockSlider;
+
+  /** If the user turns the wifi back on, dismiss the overlay. */
+  private final BroadcastReceiver dismissFromWifiStateChange = new BroadcastReceiver() {
+    @Override public void onReceive(Context context, Intent intent) {
+      int newWifiState = intent.getIntExtra(EXTRA_WIFI_STATE, -1);
+      if (newWifiState == WIFI_STATE_ENABLED || newWifiState == WIFI_STATE_ENABLING) {
+        finish(null);
+      }
+    }
+  };
+
+  /** If the user doesn't take action, quietly dismiss Shush. */
+  private final Runnable dismissFromTimeout = new Runnable() {
+    @Override public void run() {
+      finish(null);
+    }
+  };
+
+  /** Keep the slider's color in sync with the preference. */
+  private final IntPreference.Listener colorListener = new IntPreference.Listener() {
+    @Override public void onChanged(int color) {
+      clockSlider.setColor(color);
+    }
+  };
+
+  SchedulerOverlay(Context context, Callback callback) {
+    this.context = context;
+    this.windowManager = ShushModule.getSystemService(context, WINDOW_SERVICE);
+    this.callback = callback;
+    ShushApp.get(context).injectUi(this);
+  }
+
+  void show(long broadcastNanos) {
+    wifiScheduler.reset();
+
+    view = LayoutInflater.from(new ContextThemeWrapper(context, R.style.ShushTheme))
+        .inflate(R.layout.scheduler_overlay, null);
+    ButterKnife.inject(this, view);
+    clockSlider.setStart(new Date());
+    clockSlider.setMinutes(wifiScheduler.suggestedMinutes());
+    colorPreference.subscribe(colorListener);
+    view.setOnTouchListener(new View.OnTouchListener() {
+      @Override public boolean onTouch(View v, MotionEvent event) {
+        if (event.getAction() == MotionEvent.ACTION_OUTSIDE) {
+          finish(wifiScheduler.keepOffMessage());
+          return true;
+        }
+        return false;
+      }
+    });
+
+    // Don't take focus, so the app underneath keeps its keys.
+    WindowManager.LayoutParams params =
+        new WindowManager.LayoutParams(MATCH_PARENT, WRAP_CONTENT, TYPE_SYSTEM_ALERT,
+            FLAG_NOT_FOCUSABLE | FLAG_WATCH_OUTSIDE_TOUCH, PixelFormat.TRANSLUCENT);
+    params.gravity = BOTTOM;
+    SchedulerPrompt.recordFirstFrame(view, Metrics.PROMPT_FIRST_FRAME_OVERLAY, broadcastNanos);
+    windowManager.addView(view, params);
+
+    context.registerReceiver(dismissFromWifiStateChange, WIFI_STATE_CHANGED);
+    handler.postDelayed(dismissFromTimeout, TIMEOUT_MILLIS);
+  }
+
+  @OnClick(R.id.disable) void commit() {
+    finish(wifiScheduler.schedule(clockSlider.getEnd().getTime(), clockSlider.getMinutes()));
+  }
+
+  @OnClick(R.id.keep_disabled) void keepDisabled() {
+    finish(wifiScheduler.keepOffMessage());
+  }
+
+  private void finish(String message) {
+    if (view == null) {
+      return; // already dismissed
+    }
+
+    handler.removeCallbacks(dismissFromTimeout);
+    context.unregisterReceiver(dismissFromWifiStateChange);
+    colorPreference.unsubscribe(colorListener);
+    windowManager.removeView(view);
+    view = null;
+
+    if (message != null) {
+      Toaster.show(context, message);
+    }
+    callback.onDismissed();
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import android.app.Application;
+import android.app.KeyguardManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import com.f2prateek.shush.wifi.metrics.Metrics;
+import com.f2prateek.shush.wifi.prefs.BooleanPreference;
+import com.f2prateek.shush.wifi.prefs.OverlayPrompt;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Asks the user when to turn Wi-Fi back on, either with {@link WifiSchedulerDialog} or, if they
+ * prefer, with a {@link SchedulerOverlay} drawn over whatever they're doing. The overlay skips
+ * starting an activity and a task, so it shows up sooner. The lock screen always gets the
+ * activity, since the overlay can't be shown over it.
+ * <p>
+ * This is part of the receiver graph; the screen bindings are only added once there's a screen
+ * to show, by the activity or the overlay.
+ */
+@Singleton
+public final class SchedulerPrompt {
+  private final Application app;
+  private final KeyguardManager keyguardManager;
+  private final BooleanPreference overlayPreference;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  /** The overlay being shown, if any. Only touched on the main thread. */
+  private SchedulerOverlay overlay;
+  private final SchedulerOverlay.Callback onOverlayDismissed = new SchedulerOverlay.Callback() {
+    @Override public void onDismissed() {
+      overlay = null;
+    }
+  };
+
+  @Inject SchedulerPrompt(Application app, KeyguardManager keyguardManager,
+      @OverlayPrompt BooleanPreference overlayPreference) {
+    this.app = app;
+    this.keyguardManager = keyguardManager;
+    this.overlayPreference = overlayPreference;
+  }
+
+  /**
+   * Show the prompt for Wi-Fi turned off at {@code broadcastNanos}, from {@link Metrics#begin}.
+   * May be called on any thread.
+   */
+  public void show(final long broadcastNanos) {
+    if (!overlayPreference.get() || keyguardManager.inKeyguardRestrictedInputMode()) {
+      app.startActivity(WifiSchedulerDialog.getIntent(app, broadcastNanos));
+      return;
+    }
+    mainHandler.post(new Runnable() {
+      @Override public void run() {
+        if (overlay != null) {
+          return; // still waiting on the user from the last time
+        }
+        overlay = new SchedulerOverlay(app, onOverlayDismissed);
+        overlay.show(broadcastNanos);
+      }
+    });
+  }
+
+  /** Record the time from {@code beginNanos} until {@code view} is first drawn. */
+  static void recordFirstFrame(final View view, final int span, final long beginNanos) {
+    if (beginNanos == 0) {
+      return;
+    }
+    view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+      @Override public boolean onPreDraw() {
+        view.getViewTreeObserver().removeOnPreDrawListener(this);
+        Metrics.end(span, beginNanos);
+        return true;
+      }
+    });
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import android.content.Context;
+import android.widget.LinearLayout;
+
+import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+import static android.view.ViewGroup.LayoutParams.WRAP_CONTENT;
+
+/**
+ * The content of the scheduler dialog, built in code so creating it doesn't inflate XML.
+ */
+final class SchedulerView extends LinearLayout {
+  final ClockSlider clockSlider;
+
+  SchedulerView(Context context) {
+    super(context);
+    setOrientation(VERTICAL);
+    int gap = getResources().getDimensionPixelSize(R.dimen.holo_gap);
+    setPadding(gap, gap, gap, gap);
+
+    clockSlider = new ClockSlider(context);
+    clockSlider.setId(R.id.clock_slider);
+    addView(clockSlider, new LayoutParams(MATCH_PARENT, WRAP_CONTENT));
+  }
+}
@@ -19,31 +19,92 @@ package com.f2prateek.shush.wifi;
 
 import android.app.Application;
 import android.content.Context;
+import android.os.Process;
 import com.f2prateek.ln.DebugLn;
 import com.f2prateek.ln.Ln;
+import com.f2prateek.shush.wifi.metrics.Metrics;
 import dagger.ObjectGraph;
 import hugo.weaving.DebugLog;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 public class ShushApp extends Application {
+  /** Built on first use, so broadcasts that don't need it, like boot, never pay for it. */
   private ObjectGraph applicationGraph;
+  /** Bindings for screens; built on demand so receiver-only process starts never pay for it. */
+  private ObjectGraph uiGraph;
+
+  /**
+   * Created on first use, outside the graph, so a broadcast can be handed to it without building
+   * the graph on the main thread.
+   */
+  private Executor backgroundExecutor;
 
   @Override public void onCreate() {
+    long start = Metrics.begin();
     super.onCreate();
     if (BuildConfig.DEBUG) {
       Ln.set(DebugLn.from(this));
     }
-
-    buildObjectGraphAndInject();
+    Metrics.end(Metrics.APP_CREATE, start);
   }
 
   @DebugLog
   public void buildObjectGraphAndInject() {
+    long start = Metrics.begin();
     applicationGraph = ObjectGraph.create(Modules.list(this));
-    inject(this);
+    Metrics.end(Metrics.GRAPH_BUILD, start);
   }
 
   public void inject(Object o) {
-    applicationGraph.inject(o);
+    applicationGraph().inject(o);
+  }
+
+  private synchronized ObjectGraph applicationGraph() {
+    if (applicationGraph == null) {
+      buildObjectGraphAndInject();
+    }
+    return applicationGraph;
+  }
+
+  @DebugLog
+  public void buildUiGraph() {
+    long start = Metrics.begin();
+    uiGraph = applicationGraph().plus(Modules.uiList());
+    Metrics.end(Metrics.UI_GRAPH_BUILD, start);
+  }
+
+  public void injectUi(Object o) {
+    uiGraph().inject(o);
+  }
+
+  private synchronized ObjectGraph uiGraph() {
+    if (uiGraph == null) {
+      buildUiGraph();
+    }
+    return uiGraph;
+  }
+
+  /**
+   * Returns where broadcasts are handled and where screens send their side effects, like
+   * scheduling alarms and posting notifications, so none of them run on the main thread. Tasks
+   * run one at a time in submission order.
+   */
+  public synchronized Executor backgroundExecutor() {
+    if (backgroundExecutor == null) {
+      backgroundExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override public Thread newThread(final Runnable runnable) {
+          return new Thread(new Runnable() {
+            @Override public void run() {
+              Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+              runnable.run();
+            }
+          }, "ShushBackground");
+        }
+      });
+    }
+    return backgroundExecutor;
   }
 
   public static ShushApp get(Context context) {
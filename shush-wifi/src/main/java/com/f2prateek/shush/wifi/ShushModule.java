@@ -21,29 +21,48 @@ import android.app.AlarmManager;
 import android.app.Application;
 import android.app.KeyguardManager;
 import android.app.NotificationManager;
+import android.bluetooth.BluetoothAdapter;
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.content.res.Resources;
 import android.net.wifi.WifiManager;
+import android.os.PowerManager;
+import com.f2prateek.ln.Ln;
 import com.f2prateek.shush.wifi.base.BaseBroadcastReceiver;
+import com.f2prateek.shush.wifi.energy.EnergyLedger;
+import com.f2prateek.shush.wifi.history.WifiEventLog;
 import com.f2prateek.shush.wifi.prefs.PreferencesModule;
+import com.f2prateek.shush.wifi.radio.BluetoothRadio;
+import com.f2prateek.shush.wifi.radio.Radios;
+import com.f2prateek.shush.wifi.radio.WifiRadio;
+import com.f2prateek.shush.wifi.schedule.ScheduleJournal;
 import dagger.Module;
 import dagger.Provides;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
 import javax.inject.Singleton;
 
 import static android.content.Context.ALARM_SERVICE;
 import static android.content.Context.KEYGUARD_SERVICE;
 import static android.content.Context.MODE_PRIVATE;
 import static android.content.Context.NOTIFICATION_SERVICE;
+import static android.content.Context.POWER_SERVICE;
 import static android.content.Context.WIFI_SERVICE;
 
+/**
+ * Bindings needed to handle broadcasts. This graph is built for every process start, so anything
+ * only screens need belongs in {@link UiModule}, which is added on top of it lazily.
+ */
 @Module(
     includes = PreferencesModule.class,
     injects = {
-        ShushApp.class, BaseBroadcastReceiver.class, OnWifiStateChanged.class, TurnWifiOn.class,
-        WifiSchedulerDialog.class, WelcomeScreen.class
+        BaseBroadcastReceiver.class, OnWifiStateChanged.class, TurnWifiOn.class,
+        SnoozeWifi.class, QuietHoursEdge.class
     })
 public final class ShushModule {
+  /** Wi-Fi state changes that undo the previous change this quickly are ignored. */
+  private static final long WIFI_FLAP_WINDOW_MILLIS = 1000;
+
   private final ShushApp app;
 
   public ShushModule(ShushApp app) {
@@ -54,8 +73,9 @@ public final class ShushModule {
     return app;
   }
 
-  @Provides @Singleton Resources provideResources() {
-    return app.getResources();
+  /** See {@link ShushApp#backgroundExecutor()}. */
+  @Provides @Singleton Executor provideBackgroundExecutor() {
+    return app.backgroundExecutor();
   }
 
   @Provides @Singleton WifiManager provideWifiManager(final Application app) {
@@ -70,16 +90,48 @@ public final class ShushModule {
     return getSystemService(app, NOTIFICATION_SERVICE);
   }
 
+  @Provides @Singleton PowerManager providePowerManager(final Application app) {
+    return getSystemService(app, POWER_SERVICE);
+  }
+
   @Provides @Singleton KeyguardManager provideKeyguardManager(final Application app) {
     return getSystemService(app, KEYGUARD_SERVICE);
   }
 
+  /** Only read when a preference is first used, so broadcasts that need none don't load it. */
   @Provides @Singleton SharedPreferences provideSharedPreferences(final Application app) {
     return app.getSharedPreferences("shush.wifi", MODE_PRIVATE);
   }
 
+  /** In the order of the {@link Radios} bits. */
+  @Provides @Singleton Radios provideRadios(final WifiManager wifiManager) {
+    return new Radios(new WifiRadio(wifiManager),
+        new BluetoothRadio(BluetoothAdapter.getDefaultAdapter()));
+  }
+
+  @Provides @Singleton WifiStateCoalescer provideWifiStateCoalescer() {
+    return new WifiStateCoalescer(WIFI_FLAP_WINDOW_MILLIS);
+  }
+
+  @Provides @Singleton WifiEventLog provideWifiEventLog(final Application app) {
+    try {
+      return WifiEventLog.open(new File(app.getFilesDir(), "wifi_events.log"));
+    } catch (IOException e) {
+      Ln.e(e, "Could not open the event log, history won't be saved.");
+      return WifiEventLog.inMemory();
+    }
+  }
+
+  @Provides @Singleton EnergyLedger provideEnergyLedger(final Application app) {
+    return new EnergyLedger(app);
+  }
+
+  @Provides @Singleton ScheduleJournal provideScheduleJournal(final Application app) {
+    return new ScheduleJournal(new File(app.getFilesDir(), ScheduleJournal.FILE_NAME));
+  }
+
   @SuppressWarnings("unchecked")
-  public <T> T getSystemService(Context context, String serviceConstant) {
+  public static <T> T getSystemService(Context context, String serviceConstant) {
     return (T) context.getSystemService(serviceConstant);
   }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import android.app.AlarmManager;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import com.f2prateek.shush.wifi.base.BaseBroadcastReceiver;
+import com.f2prateek.shush.wifi.history.WifiEventLog;
+import com.f2prateek.shush.wifi.radio.Radios;
+import com.f2prateek.shush.wifi.schedule.Precision;
+import com.f2prateek.shush.wifi.schedule.ScheduleJournal;
+import javax.inject.Inject;
+
+import static android.app.PendingIntent.FLAG_UPDATE_CURRENT;
+
+/**
+ * Pushes back the time Wi-Fi turns on, from the actions on {@link WifiTurnedOffNotification}.
+ */
+public final class SnoozeWifi extends BaseBroadcastReceiver {
+  private static final String EXTRA_ON_TIME = "on_time";
+  private static final String EXTRA_PRECISION = "precision";
+  private static final String EXTRA_TOLERANCE_MILLIS = "tolerance_millis";
+  private static final String EXTRA_RADIOS = "radios";
+  private static final String EXTRA_MINUTES = "minutes";
+
+  /**
+   * Returns an intent to turn the wifi on {@code minutes} later than {@code onTime}. Each
+   * distinct number of minutes gets its own intent.
+   */
+  public static PendingIntent createPendingIntent(Context context, long onTime, int precision,
+      long toleranceMillis, int radios, int minutes) {
+    Intent intent = new Intent(context, SnoozeWifi.class);
+    intent.putExtra(EXTRA_ON_TIME, onTime);
+    intent.putExtra(EXTRA_PRECISION, precision);
+    intent.putExtra(EXTRA_TOLERANCE_MILLIS, toleranceMillis);
+    intent.putExtra(EXTRA_RADIOS, radios);
+    intent.putExtra(EXTRA_MINUTES, minutes);
+    return PendingIntent.getBroadcast(context, minutes, intent, FLAG_UPDATE_CURRENT);
+  }
+
+  @Inject AlarmManager alarmManager;
+  @Inject NotificationManager notificationManager;
+  @Inject WifiEventLog wifiEventLog;
+  @Inject ScheduleJournal scheduleJournal;
+
+  @Override protected void onReceiveInBackground(Context context, Intent intent) {
+    long onTime = intent.getLongExtra(EXTRA_ON_TIME, -1);
+    if (onTime == -1) {
+      return;
+    }
+    int precision = intent.getIntExtra(EXTRA_PRECISION, Precision.EXACT);
+    long toleranceMillis = intent.getLongExtra(EXTRA_TOLERANCE_MILLIS, 0);
+    int radios = intent.getIntExtra(EXTRA_RADIOS, Radios.WIFI);
+    int minutes = intent.getIntExtra(EXTRA_MINUTES, 0);
+
+    long newOnTime = onTime + minutes * 60 * 1000L;
+    PendingIntent ringerOn =
+        TurnWifiOn.createPendingIntent(context, newOnTime, precision, radios);
+    scheduleJournal.write(new ScheduleJournal.Entry(newOnTime, precision, toleranceMillis, radios));
+    TurnWifiOn.schedule(alarmManager, ringerOn, newOnTime, precision, toleranceMillis);
+
+    // Same ID, so this replaces the notification that was tapped.
+    WifiTurnedOffNotification.show(context, notificationManager,
+        WifiTurnedOffNotification.getMessage(context, newOnTime), ringerOn, newOnTime, precision,
+        toleranceMillis, radios);
+
+    int scheduled = wifiEventLog.lastIndexOf(WifiEventLog.SCHEDULED);
+    int requestedMinutes = scheduled == -1 ? 0 : wifiEventLog.requestedMinutesAt(scheduled);
+    wifiEventLog.append(System.currentTimeMillis(), WifiEventLog.SCHEDULED,
+        requestedMinutes + minutes, 0);
+  }
+}
@@ -21,38 +21,167 @@ import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.net.wifi.WifiManager;
+import android.os.Build;
+import android.os.PowerManager;
+import com.f2prateek.ln.Ln;
 import com.f2prateek.shush.wifi.base.BaseBroadcastReceiver;
+import com.f2prateek.shush.wifi.energy.EnergyLedger;
+import com.f2prateek.shush.wifi.history.WifiEventLog;
+import com.f2prateek.shush.wifi.metrics.Metrics;
+import com.f2prateek.shush.wifi.radio.Radios;
+import com.f2prateek.shush.wifi.schedule.Precision;
+import com.f2prateek.shush.wifi.schedule.ScheduleJournal;
 import javax.inject.Inject;
 
 import static android.app.PendingIntent.FLAG_CANCEL_CURRENT;
+import static android.app.PendingIntent.FLAG_NO_CREATE;
 
 /**
- * Turns the wifi on when received.
+ * Turns the wifi, and any other radios shushed with it, back on when received.
  */
 public final class TurnWifiOn extends BaseBroadcastReceiver {
-  public static PendingIntent createPendingIntent(Context context) {
+  /** Never hold the wakelock longer than this, even if the radio call hangs. */
+  private static final long WAKE_LOCK_TIMEOUT_MILLIS = 10 * 1000;
+
+  private static final String EXTRA_ON_TIME = "on_time";
+  private static final String EXTRA_PRECISION = "precision";
+  private static final String EXTRA_RADIOS = "radios";
+  private static final int[] DRIFT_SPANS = {
+      Metrics.ALARM_DRIFT_EXACT, Metrics.ALARM_DRIFT_BATCHED, Metrics.ALARM_DRIFT_NEXT_WAKE
+  };
+
+  /**
+   * Returns an intent to turn the {@code radios} back on, which remembers when and how precisely
+   * it was scheduled so that we can measure how late it fires. Every radio is restored by this
+   * one intent, so they share a single wakeup.
+   */
+  public static PendingIntent createPendingIntent(Context context, long onTime, int precision,
+      int radios) {
     Intent intent = new Intent(context, TurnWifiOn.class);
+    intent.putExtra(EXTRA_ON_TIME, onTime);
+    intent.putExtra(EXTRA_PRECISION, precision);
+    intent.putExtra(EXTRA_RADIOS, radios);
     return PendingIntent.getBroadcast(context, 0, intent, FLAG_CANCEL_CURRENT);
   }
 
-  @Inject WifiManager wifiManager;
+  @Inject Radios radios;
+  @Inject EnergyLedger energyLedger;
+  @Inject ScheduleJournal scheduleJournal;
+  @Inject PowerManager powerManager;
+  @Inject WifiEventLog wifiEventLog;
 
-  public void onReceive(Context context, Intent intent) {
-    super.onReceive(context, intent);
-    if (wifiManager.isWifiEnabled()) {
-      return;
+  @Override protected void onReceiveInBackground(Context context, Intent intent) {
+    recordDrift(intent);
+    // Done with this schedule; don't let restoreEarly deliver it again.
+    PendingIntent scheduled = findScheduled(context);
+    if (scheduled != null) {
+      scheduled.cancel();
+    }
+
+    // Only the radio call can hang; the bookkeeping after it is local file I/O.
+    int restored;
+    PowerManager.WakeLock wakeLock =
+        powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "Shush:TurnWifiOn");
+    wakeLock.setReferenceCounted(false);
+    wakeLock.acquire(WAKE_LOCK_TIMEOUT_MILLIS);
+    try {
+      restored = radios.enable(intent.getIntExtra(EXTRA_RADIOS, Radios.WIFI));
+    } finally {
+      wakeLock.release();
+    }
+
+    if ((restored & Radios.WIFI) != 0) {
+      logRestored();
     }
-    
-    wifiManager.setWifiEnabled(true);
+    energyLedger.windowClosed(System.currentTimeMillis());
+    scheduleJournal.clear();
+  }
+
+  /** Log how long the user asked for in the last schedule, and how long Wi-Fi was off. */
+  private void logRestored() {
+    long now = System.currentTimeMillis();
+    int scheduled = wifiEventLog.lastIndexOf(WifiEventLog.SCHEDULED);
+    int requestedMinutes = scheduled == -1 ? 0 : wifiEventLog.requestedMinutesAt(scheduled);
+    int off = wifiEventLog.lastIndexOf(WifiEventLog.WIFI_OFF);
+    int offMinutes = off == -1 ? 0 : (int) ((now - wifiEventLog.timeMillisAt(off)) / 60000);
+    wifiEventLog.append(now, WifiEventLog.WIFI_RESTORED, requestedMinutes, offMinutes);
   }
 
+  private static void recordDrift(Intent intent) {
+    long onTime = intent.getLongExtra(EXTRA_ON_TIME, -1);
+    int precision = intent.getIntExtra(EXTRA_PRECISION, -1);
+    if (onTime == -1 || precision < 0 || precision >= DRIFT_SPANS.length) {
+      return; // scheduled by an older version
+    }
+    long driftMillis = System.currentTimeMillis() - onTime;
+    if (driftMillis < 0) {
+      return; // the user turned it on early from the notification
+    }
+    Ln.i("Alarm with precision %d fired %dms late.", precision, driftMillis);
+    Metrics.record(DRIFT_SPANS[precision], driftMillis * 1000000L);
+  }
+
+  /**
+   * Schedule {@code ringerOnIntent} for {@code onTime}. With {@link Precision#BATCHED}, the
+   * alarm may be delivered up to {@code toleranceMillis} late.
+   */
   public static void schedule(AlarmManager alarmManager, PendingIntent ringerOnIntent,
-      long onTime) {
-    alarmManager.set(AlarmManager.RTC_WAKEUP, onTime, ringerOnIntent);
+      long onTime, int precision, long toleranceMillis) {
+    boolean kitKat = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
+    switch (precision) {
+      case Precision.BATCHED:
+        if (kitKat) {
+          alarmManager.setWindow(AlarmManager.RTC_WAKEUP, onTime, toleranceMillis, ringerOnIntent);
+        } else {
+          alarmManager.set(AlarmManager.RTC_WAKEUP, onTime, ringerOnIntent);
+        }
+        break;
+      case Precision.NEXT_WAKE:
+        alarmManager.set(AlarmManager.RTC, onTime, ringerOnIntent);
+        break;
+      case Precision.EXACT:
+      default:
+        if (kitKat) {
+          alarmManager.setExact(AlarmManager.RTC_WAKEUP, onTime, ringerOnIntent);
+        } else {
+          alarmManager.set(AlarmManager.RTC_WAKEUP, onTime, ringerOnIntent); // exact before 19
+        }
+        break;
+    }
   }
 
+  /**
+   * Cancel the alarm to turn the radios back on, if there is one. Only looks the intent up, so
+   * there's nothing left behind for {@link #restoreEarly} to find.
+   */
   public static void cancelScheduled(AlarmManager alarmManager, Context context) {
-    alarmManager.cancel(createPendingIntent(context));
+    PendingIntent scheduled = findScheduled(context);
+    if (scheduled != null) {
+      alarmManager.cancel(scheduled);
+      scheduled.cancel();
+    }
+  }
+
+  /**
+   * The user turned the wifi on before it was scheduled to; deliver the scheduled intent now so
+   * the other radios shushed with it come back too.
+   */
+  public static void restoreEarly(AlarmManager alarmManager, Context context) {
+    PendingIntent scheduled = findScheduled(context);
+    if (scheduled == null) {
+      return;
+    }
+    alarmManager.cancel(scheduled);
+    try {
+      scheduled.send();
+    } catch (PendingIntent.CanceledException e) {
+      Ln.d("Scheduled intent was cancelled before it could be sent early.");
+    }
+  }
+
+  /** Returns the intent we're waiting to fire, or null if there isn't one. */
+  static PendingIntent findScheduled(Context context) {
+    Intent intent = new Intent(context, TurnWifiOn.class);
+    return PendingIntent.getBroadcast(context, 0, intent, FLAG_NO_CREATE);
   }
 }
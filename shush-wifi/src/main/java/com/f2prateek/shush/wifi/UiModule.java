@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import android.app.Application;
+import android.content.res.Resources;
+import com.f2prateek.shush.wifi.prefs.Color;
+import com.f2prateek.shush.wifi.prefs.DurationHistory;
+import com.f2prateek.shush.wifi.prefs.IntPreference;
+import com.f2prateek.shush.wifi.prefs.PreferenceStore;
+import com.f2prateek.shush.wifi.prefs.StringPreference;
+import com.f2prateek.shush.wifi.schedule.DurationPredictor;
+import dagger.Module;
+import dagger.Provides;
+import javax.inject.Singleton;
+
+/**
+ * Bindings only needed once a screen is shown. Added on top of the {@link ShushModule} graph the
+ * first time an activity is injected, so broadcasts never pay for them.
+ */
+@Module(
+    addsTo = ShushModule.class,
+    injects = {
+        WifiSchedulerDialog.class, WelcomeScreen.class, SchedulerOverlay.class
+    })
+public final class UiModule {
+  @Provides @Singleton Resources provideResources(final Application app) {
+    return app.getResources();
+  }
+
+  @Provides @Singleton @Color IntPreference provideColorPreference(
+      final PreferenceStore preferenceStore, final Resources resources) {
+    return new IntPreference(preferenceStore, "color",
+        resources.getColor(android.R.color.holo_blue_bright));
+  }
+
+  @Provides @Singleton DurationPredictor provideDurationPredictor(
+      @DurationHistory StringPreference durationHistoryPreference) {
+    return DurationPredictor.decode(durationHistoryPreference.get());
+  }
+}
@@ -17,54 +17,215 @@
 
 package com.f2prateek.shush.wifi;
 
+import android.app.TimePickerDialog;
 import android.content.Intent;
 import android.content.res.Resources;
 import android.net.Uri;
+import android.os.Bundle;
+import android.text.format.DateFormat;
 import android.widget.CompoundButton;
+import android.widget.TextView;
+import android.widget.TimePicker;
 import butterknife.ButterKnife;
 import butterknife.InjectView;
 import butterknife.OnCheckedChanged;
 import butterknife.OnClick;
+import com.f2prateek.ln.Ln;
 import com.f2prateek.shush.wifi.base.BaseActivity;
+import com.f2prateek.shush.wifi.energy.EnergyLedger;
+import com.f2prateek.shush.wifi.metrics.Metrics;
 import com.f2prateek.shush.wifi.prefs.BooleanPreference;
 import com.f2prateek.shush.wifi.prefs.Color;
 import com.f2prateek.shush.wifi.prefs.IntPreference;
 import com.f2prateek.shush.wifi.prefs.NotificationsEnabled;
+import com.f2prateek.shush.wifi.prefs.OverlayPrompt;
+import com.f2prateek.shush.wifi.prefs.Paused;
+import com.f2prateek.shush.wifi.prefs.QuietHours;
+import com.f2prateek.shush.wifi.prefs.ShushedRadios;
+import com.f2prateek.shush.wifi.prefs.StringPreference;
+import com.f2prateek.shush.wifi.radio.Radios;
 import com.larswerkman.holocolorpicker.ColorPicker;
+import java.util.Calendar;
 import javax.inject.Inject;
 
+import static com.f2prateek.shush.wifi.QuietHoursScheduler.DEFAULT_END_MINUTE;
+import static com.f2prateek.shush.wifi.QuietHoursScheduler.DEFAULT_START_MINUTE;
+
 /**
  * A dialog that explains how Shush works and lets users pick limited options.
  */
 public final class WelcomeScreen extends BaseActivity
-    implements ColorPicker.OnColorSelectedListener {
+    implements ColorPicker.OnColorChangedListener, ColorPicker.OnColorSelectedListener {
   @Inject @Color IntPreference colorPreference;
   @Inject @NotificationsEnabled BooleanPreference notificationsPreference;
+  @Inject @OverlayPrompt BooleanPreference overlayPreference;
+  @Inject @ShushedRadios IntPreference shushedRadiosPreference;
   @Inject Resources resources;
+  @Inject EnergyLedger energyLedger;
+  @Inject PauseController pauseController;
+  @Inject @Paused BooleanPreference pausedPreference;
+  @Inject QuietHoursScheduler quietHoursScheduler;
+  @Inject @QuietHours StringPreference quietHoursPreference;
 
+  @InjectView(R.id.pause_toggle) CompoundButton pauseToggle;
   @InjectView(R.id.notification_toggle) CompoundButton notificationToggle;
+  @InjectView(R.id.overlay_toggle) CompoundButton overlayToggle;
+  @InjectView(R.id.bluetooth_toggle) CompoundButton bluetoothToggle;
+  @InjectView(R.id.quiet_hours_toggle) CompoundButton quietHoursToggle;
+  @InjectView(R.id.quiet_hours_times) TextView quietHoursTimes;
+  @InjectView(R.id.color_header) TextView colorHeader;
   @InjectView(R.id.color_picker) ColorPicker colorPicker;
+  @InjectView(R.id.energy_summary) TextView energySummary;
 
-  @Override protected void onResume() {
-    super.onResume();
+  private final BooleanPreference.Listener pausedListener = new BooleanPreference.Listener() {
+    @Override public void onChanged(boolean paused) {
+      pauseToggle.setChecked(paused);
+    }
+  };
+  private final BooleanPreference.Listener notificationsListener =
+      new BooleanPreference.Listener() {
+        @Override public void onChanged(boolean enabled) {
+          notificationToggle.setChecked(enabled);
+        }
+      };
+  private final BooleanPreference.Listener overlayListener = new BooleanPreference.Listener() {
+    @Override public void onChanged(boolean enabled) {
+      overlayToggle.setChecked(enabled);
+    }
+  };
+  private final IntPreference.Listener shushedRadiosListener = new IntPreference.Listener() {
+    @Override public void onChanged(int radios) {
+      bluetoothToggle.setChecked((radios & Radios.BLUETOOTH) != 0);
+    }
+  };
+  private final StringPreference.Listener quietHoursListener = new StringPreference.Listener() {
+    @Override public void onChanged(String windows) {
+      boolean enabled = quietHoursScheduler.isEnabled();
+      quietHoursToggle.setChecked(enabled);
+      quietHoursTimes.setEnabled(enabled);
+      int start = enabled ? quietHoursScheduler.startMinuteOfDay() : DEFAULT_START_MINUTE;
+      int end = enabled ? quietHoursScheduler.endMinuteOfDay() : DEFAULT_END_MINUTE;
+      quietHoursTimes.setText(resources.getString(R.string.quiet_hours_times,
+          timeOfDayText(start), timeOfDayText(end)));
+    }
+  };
+  private final IntPreference.Listener colorListener = new IntPreference.Listener() {
+    @Override public void onChanged(int color) {
+      if (colorPicker.getColor() != color) {
+        colorPicker.setColor(color);
+      }
+      colorHeader.setTextColor(color);
+    }
+  };
+
+  @Override protected void onCreate(Bundle savedInstanceState) {
+    super.onCreate(savedInstanceState);
 
+    // Built once; the views keep their state across pause and resume.
     setContentView(R.layout.welcome_screen);
     ButterKnife.inject(this);
 
-    notificationToggle.setChecked(notificationsPreference.get());
-
-    colorPicker.setColor(colorPreference.get());
+    colorPicker.setOnColorChangedListener(this);
     colorPicker.setOnColorSelectedListener(this);
-
     // We don't get notified when the user selects the old center, so we simply disable this
     // colorPicker.setOldCenterColor(colorPreference.get());
     colorPicker.setShowOldCenterColor(false);
   }
 
+  @Override protected void onResume() {
+    long start = Metrics.begin();
+    super.onResume();
+
+    pausedPreference.subscribe(pausedListener);
+    notificationsPreference.subscribe(notificationsListener);
+    overlayPreference.subscribe(overlayListener);
+    shushedRadiosPreference.subscribe(shushedRadiosListener);
+    quietHoursPreference.subscribe(quietHoursListener);
+    colorPreference.subscribe(colorListener);
+    showEnergySummary();
+
+    SchedulerPrompt.recordFirstFrame(getWindow().getDecorView(), Metrics.WELCOME_RESUME, start);
+  }
+
+  @Override protected void onPause() {
+    pausedPreference.unsubscribe(pausedListener);
+    notificationsPreference.unsubscribe(notificationsListener);
+    overlayPreference.unsubscribe(overlayListener);
+    shushedRadiosPreference.unsubscribe(shushedRadiosListener);
+    quietHoursPreference.unsubscribe(quietHoursListener);
+    colorPreference.unsubscribe(colorListener);
+    super.onPause();
+    Ln.d("%d preference writes so far.", preferenceStore.applyCount());
+  }
+
+  private void showEnergySummary() {
+    long now = System.currentTimeMillis();
+    float hourMillis = 60 * 60 * 1000f;
+    energySummary.setText(resources.getString(R.string.energy_summary,
+        energyLedger.offMillis(now, 1) / hourMillis, energyLedger.offMillis(now, 7) / hourMillis,
+        energyLedger.savedMilliampHours(now, 7), energyLedger.batteryDropPercent(now, 7)));
+  }
+
+  @OnCheckedChanged(R.id.pause_toggle) public void pauseToggled(boolean checked) {
+    if (checked != pauseController.isPaused()) {
+      pauseController.setPaused(checked);
+    }
+  }
+
   @OnCheckedChanged(R.id.notification_toggle) public void notificationsToggled(boolean checked) {
     notificationsPreference.set(checked);
   }
 
+  @OnCheckedChanged(R.id.overlay_toggle) public void overlayToggled(boolean checked) {
+    overlayPreference.set(checked);
+  }
+
+  @OnCheckedChanged(R.id.bluetooth_toggle) public void bluetoothToggled(boolean checked) {
+    int radios = shushedRadiosPreference.get();
+    shushedRadiosPreference.set(checked ? radios | Radios.BLUETOOTH : radios & ~Radios.BLUETOOTH);
+  }
+
+  @OnCheckedChanged(R.id.quiet_hours_toggle) public void quietHoursToggled(boolean checked) {
+    if (checked == quietHoursScheduler.isEnabled()) {
+      return;
+    }
+    if (checked) {
+      quietHoursScheduler.setEveryDay(DEFAULT_START_MINUTE, DEFAULT_END_MINUTE);
+    } else {
+      quietHoursScheduler.disable();
+    }
+  }
+
+  /** Ask when quiet hours start, then when they end. */
+  @OnClick(R.id.quiet_hours_times) public void pickQuietHours() {
+    int start = quietHoursScheduler.startMinuteOfDay();
+    TimePickerDialog dialog = new TimePickerDialog(this, new TimePickerDialog.OnTimeSetListener() {
+      @Override public void onTimeSet(TimePicker view, int hourOfDay, int minute) {
+        pickQuietHoursEnd(hourOfDay * 60 + minute);
+      }
+    }, start / 60, start % 60, DateFormat.is24HourFormat(this));
+    dialog.setTitle(R.string.quiet_hours_from);
+    dialog.show();
+  }
+
+  private void pickQuietHoursEnd(final int start) {
+    int end = quietHoursScheduler.endMinuteOfDay();
+    TimePickerDialog dialog = new TimePickerDialog(this, new TimePickerDialog.OnTimeSetListener() {
+      @Override public void onTimeSet(TimePicker view, int hourOfDay, int minute) {
+        quietHoursScheduler.setEveryDay(start, hourOfDay * 60 + minute);
+      }
+    }, end / 60, end % 60, DateFormat.is24HourFormat(this));
+    dialog.setTitle(R.string.quiet_hours_until);
+    dialog.show();
+  }
+
+  private String timeOfDayText(int minuteOfDay) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+    calendar.set(Calendar.MINUTE, minuteOfDay % 60);
+    return DateFormat.getTimeFormat(this).format(calendar.getTime());
+  }
+
   @OnClick(R.id.share) public void share() {
     Intent intent = new Intent(Intent.ACTION_SEND);
     intent.setType("text/plain");
@@ -80,7 +241,15 @@ public final class WelcomeScreen extends BaseActivity
     startActivity(i);
   }
 
+  /** Called for every step of a drag; only previews the color. */
+  @Override public void onColorChanged(int color) {
+    colorHeader.setTextColor(color);
+  }
+
+  /** Called once the drag ends. */
   @Override public void onColorSelected(int color) {
-    colorPreference.set(color);
+    if (color != colorPreference.get()) {
+      colorPreference.set(color);
+    }
   }
 }
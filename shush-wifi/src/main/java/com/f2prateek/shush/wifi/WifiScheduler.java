@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import android.app.AlarmManager;
+import android.app.Application;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import com.f2prateek.shush.wifi.energy.EnergyLedger;
+import com.f2prateek.shush.wifi.history.WifiEventLog;
+import com.f2prateek.shush.wifi.metrics.Metrics;
+import com.f2prateek.shush.wifi.prefs.AlarmPrecision;
+import com.f2prateek.shush.wifi.prefs.AlarmToleranceMinutes;
+import com.f2prateek.shush.wifi.prefs.BooleanPreference;
+import com.f2prateek.shush.wifi.prefs.DurationHistory;
+import com.f2prateek.shush.wifi.prefs.IntPreference;
+import com.f2prateek.shush.wifi.prefs.Minutes;
+import com.f2prateek.shush.wifi.prefs.NotificationsEnabled;
+import com.f2prateek.shush.wifi.prefs.PreferenceStore;
+import com.f2prateek.shush.wifi.prefs.ShushedRadios;
+import com.f2prateek.shush.wifi.prefs.StringPreference;
+import com.f2prateek.shush.wifi.radio.Radios;
+import com.f2prateek.shush.wifi.schedule.DurationPredictor;
+import com.f2prateek.shush.wifi.schedule.RestoreScheduler;
+import com.f2prateek.shush.wifi.schedule.ScheduleJournal;
+import dagger.Lazy;
+import java.util.Calendar;
+import java.util.concurrent.Executor;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * What happens when the user picks a time to turn Wi-Fi back on, shared by every way of asking
+ * them. Side effects run on the background executor so the prompt only has to go away; the
+ * {@link RestoreScheduler} runs them in the order they were requested, so a reset can't overtake
+ * an earlier schedule.
+ */
+@Singleton
+public final class WifiScheduler {
+  private final Application app;
+  private final AlarmManager alarmManager;
+  private final NotificationManager notificationManager;
+  private final Lazy<WifiEventLog> wifiEventLog;
+  private final DurationPredictor durationPredictor;
+  private final Radios radios;
+  private final EnergyLedger energyLedger;
+  private final PreferenceStore preferenceStore;
+  private final RestoreScheduler restoreScheduler;
+  /** True for notifications; false for toasts. */
+  private final BooleanPreference notificationsPreference;
+  private final IntPreference minutesPreference;
+  private final IntPreference alarmPrecisionPreference;
+  private final IntPreference alarmToleranceMinutesPreference;
+  private final StringPreference durationHistoryPreference;
+  private final IntPreference shushedRadiosPreference;
+
+  private final RestoreScheduler.Alarm alarm = new RestoreScheduler.Alarm() {
+    @Override public void set(ScheduleJournal.Entry entry) {
+      PendingIntent ringerOn =
+          TurnWifiOn.createPendingIntent(app, entry.onTime, entry.precision, entry.radios);
+      TurnWifiOn.schedule(alarmManager, ringerOn, entry.onTime, entry.precision,
+          entry.toleranceMillis);
+    }
+
+    @Override public void cancel() {
+      TurnWifiOn.cancelScheduled(alarmManager, app);
+    }
+  };
+
+  @Inject WifiScheduler(Application app, Executor backgroundExecutor, AlarmManager alarmManager,
+      NotificationManager notificationManager, Lazy<WifiEventLog> wifiEventLog,
+      DurationPredictor durationPredictor, Radios radios, EnergyLedger energyLedger,
+      PreferenceStore preferenceStore, ScheduleJournal scheduleJournal,
+      @NotificationsEnabled BooleanPreference notificationsPreference,
+      @Minutes IntPreference minutesPreference,
+      @AlarmPrecision IntPreference alarmPrecisionPreference,
+      @AlarmToleranceMinutes IntPreference alarmToleranceMinutesPreference,
+      @DurationHistory StringPreference durationHistoryPreference,
+      @ShushedRadios IntPreference shushedRadiosPreference) {
+    this.app = app;
+    this.alarmManager = alarmManager;
+    this.notificationManager = notificationManager;
+    this.wifiEventLog = wifiEventLog;
+    this.durationPredictor = durationPredictor;
+    this.radios = radios;
+    this.energyLedger = energyLedger;
+    this.preferenceStore = preferenceStore;
+    this.notificationsPreference = notificationsPreference;
+    this.minutesPreference = minutesPreference;
+    this.alarmPrecisionPreference = alarmPrecisionPreference;
+    this.alarmToleranceMinutesPreference = alarmToleranceMinutesPreference;
+    this.durationHistoryPreference = durationHistoryPreference;
+    this.shushedRadiosPreference = shushedRadiosPreference;
+    this.restoreScheduler = new RestoreScheduler(backgroundExecutor, scheduleJournal, alarm);
+  }
+
+  /** Forget any earlier schedule, since the user is about to pick a new one. */
+  public void reset() {
+    restoreScheduler.reset(new Runnable() {
+      @Override public void run() {
+        WifiTurnedOffNotification.dismiss(notificationManager);
+      }
+    });
+  }
+
+  /** Returns how many minutes to offer by default. */
+  public int suggestedMinutes() {
+    int suggestedMinutes = durationPredictor.suggestMinutes(hourOfDay());
+    return suggestedMinutes != -1 ? suggestedMinutes : minutesPreference.get();
+  }
+
+  /** Returns how many minutes were last chosen. */
+  public int lastMinutes() {
+    return minutesPreference.get();
+  }
+
+  /**
+   * Turn off the other radios the user shushes with Wi-Fi, and turn them all back on at
+   * {@code onTime}, {@code minutes} from now. Returns a message to show the user, or null if
+   * they'll be told with a notification.
+   * <p>
+   * The work is done on the background executor, after anything submitted before it.
+   */
+  public String schedule(final long onTime, final int minutes) {
+    final String message = WifiTurnedOffNotification.getMessage(app, onTime);
+    final boolean notify = notificationsPreference.get();
+    restoreScheduler.schedule(new RestoreScheduler.Request() {
+      long start;
+
+      @Override public ScheduleJournal.Entry prepare() {
+        start = Metrics.begin();
+        // Wi-Fi is already off; only restore the others if we're the ones turning them off.
+        int shushed = Radios.WIFI | radios.disable(shushedRadiosPreference.get() & ~Radios.WIFI);
+        energyLedger.windowOpened(System.currentTimeMillis(), shushed);
+        long toleranceMillis = alarmToleranceMinutesPreference.get() * 60 * 1000L;
+        return new ScheduleJournal.Entry(onTime, alarmPrecisionPreference.get(), toleranceMillis,
+            shushed);
+      }
+
+      @Override public void onScheduled(ScheduleJournal.Entry entry) {
+        Metrics.end(Metrics.ALARM_SCHEDULED, start);
+
+        minutesPreference.set(minutes);
+        durationPredictor.record(hourOfDay(), minutes);
+        durationHistoryPreference.set(durationPredictor.encode());
+        // No screen may be resumed to flush these for us by now.
+        preferenceStore.flush();
+        wifiEventLog.get().append(System.currentTimeMillis(), WifiEventLog.SCHEDULED, minutes, 0);
+
+        if (notify) {
+          WifiTurnedOffNotification.show(app, notificationManager, message,
+              TurnWifiOn.findScheduled(app), onTime, entry.precision, entry.toleranceMillis,
+              entry.radios);
+        }
+      }
+    });
+    return notify ? null : message;
+  }
+
+  /** Returns the message to show the user when they keep Wi-Fi off. */
+  public String keepOffMessage() {
+    return app.getString(R.string.wifi_disabled_indefinitely);
+  }
+
+  private static int hourOfDay() {
+    return Calendar.getInstance().get(Calendar.HOUR_OF_DAY);
+  }
+}
@@ -17,12 +17,9 @@
 
 package com.f2prateek.shush.wifi;
 
-import android.app.AlarmManager;
 import android.app.AlertDialog;
 import android.app.Dialog;
 import android.app.KeyguardManager;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.DialogInterface;
@@ -33,17 +30,14 @@ import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
 import android.os.Handler;
 import android.view.ContextThemeWrapper;
-import android.view.View;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.TextView;
-import butterknife.ButterKnife;
-import butterknife.InjectView;
+import com.f2prateek.ln.Ln;
 import com.f2prateek.shush.wifi.base.BaseActivity;
-import com.f2prateek.shush.wifi.prefs.BooleanPreference;
+import com.f2prateek.shush.wifi.metrics.FrameMonitor;
+import com.f2prateek.shush.wifi.metrics.Metrics;
 import com.f2prateek.shush.wifi.prefs.IntPreference;
-import com.f2prateek.shush.wifi.prefs.Minutes;
-import com.f2prateek.shush.wifi.prefs.NotificationsEnabled;
 import java.util.Date;
 import javax.inject.Inject;
 
@@ -61,6 +55,7 @@ public final class WifiSchedulerDialog extends BaseActivity {
   /** For restoring state. */
   private static final String KEY_START = "start";
   private static final String KEY_MINUTES = "minutes";
+  private static final String EXTRA_BROADCAST_NANOS = "broadcast_nanos";
   /** show full-screen toast messages for two seconds */
   private static final long TOAST_LENGTH_MILLIS = 2 * 1000;
   /** cancel shush after 60 seconds of inactivity */
@@ -74,6 +69,9 @@ public final class WifiSchedulerDialog extends BaseActivity {
   /** either the regular dialog or the dialog in a full screen window for the lock screen */
   private ShushWindow shushWindow;
 
+  /** When this activity was started, to measure how long the dialog takes to show. */
+  private long startNanos;
+
   /** Read/write access to this activity's event queue */
   private final Handler handler = new Handler();
 
@@ -99,6 +97,15 @@ public final class WifiSchedulerDialog extends BaseActivity {
     }
   };
 
+  /** Keep the slider's color in sync with the preference. */
+  private final IntPreference.Listener colorListener = new IntPreference.Listener() {
+    public void onChanged(int color) {
+      if (clockSlider != null) {
+        clockSlider.setColor(color);
+      }
+    }
+  };
+
   /** If the user doesn't take action, quietly dismiss Shush. */
   private final Runnable dismissFromTimeout = new Runnable() {
     public void run() {
@@ -109,51 +116,60 @@ public final class WifiSchedulerDialog extends BaseActivity {
   };
 
   /**
-   * Returns an intent that triggers this dialog as an activity.
+   * Returns an intent that triggers this dialog as an activity, for Wi-Fi turned off at
+   * {@code broadcastNanos}.
    */
-  public static Intent getIntent(Context context) {
+  public static Intent getIntent(Context context, long broadcastNanos) {
     Intent intent = new Intent(context, WifiSchedulerDialog.class);
     intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_EXCLUDE_FROM_RECENTS);
+    intent.putExtra(EXTRA_BROADCAST_NANOS, broadcastNanos);
     return intent;
   }
 
-  @Inject AlarmManager alarmManager;
-  @Inject NotificationManager notificationManager;
+  @Inject WifiScheduler wifiScheduler;
   @Inject KeyguardManager keyguardManager;
-  /** True for notifications; false for toasts. */
-  @Inject @NotificationsEnabled BooleanPreference notificationsPreference;
   @Inject @com.f2prateek.shush.wifi.prefs.Color IntPreference colorPreference;
-  @Inject @Minutes IntPreference minutesPreference;
 
-  @InjectView(R.id.clock_slider) ClockSlider clockSlider;
+  private ClockSlider clockSlider;
 
   @Override protected void onStart() {
+    startNanos = Metrics.begin();
     super.onStart();
 
-    TurnWifiOn.cancelScheduled(alarmManager, this);
-    WifiTurnedOffNotification.dismiss(notificationManager);
+    wifiScheduler.reset();
 
     shushWindow = keyguardManager.inKeyguardRestrictedInputMode() ? new ShushFullscreen()
         : new ShushDialogOnly();
     createShushDialog();
     clockSlider.setStart(new Date());
 
-    clockSlider.setMinutes(minutesPreference.get());
-    clockSlider.setColor(colorPreference.get());
+    clockSlider.setMinutes(wifiScheduler.suggestedMinutes());
+    colorPreference.subscribe(colorListener);
 
     registerReceiver(dismissFromWifiStateChange, WIFI_STATE_CHANGED);
     registerTimeoutCallback();
   }
 
   @Override protected void onStop() {
+    colorPreference.unsubscribe(colorListener);
     unregisterReceiver(dismissFromWifiStateChange);
     unregisterTimeoutCallback();
     dialog.dismiss();
+    reportFrames();
     shushWindow = null;
     clockSlider = null;
     super.onStop();
   }
 
+  /** Logs how smoothly the slider was dragged during this session, then starts over. */
+  private void reportFrames() {
+    FrameMonitor frameMonitor = clockSlider.getFrameMonitor();
+    frameMonitor.stop();
+    Ln.i("Slider touches=%d redraws=%d %s", clockSlider.getTouchEventsReceived(),
+        clockSlider.getRedraws(), frameMonitor.summary());
+    frameMonitor.clear();
+  }
+
   private void registerTimeoutCallback() {
     handler.postDelayed(dismissFromTimeout, TIMEOUT_MILLIS);
   }
@@ -168,20 +184,9 @@ public final class WifiSchedulerDialog extends BaseActivity {
     }
 
     unregisterTimeoutCallback();
-    PendingIntent ringerOn = TurnWifiOn.createPendingIntent(this);
-
-    long onTime = clockSlider.getEnd().getTime();
-    TurnWifiOn.schedule(alarmManager, ringerOn, onTime);
-
-    minutesPreference.set(clockSlider.getMinutes());
-
-    String message = WifiTurnedOffNotification.getMessage(this, onTime);
-    if (notificationsPreference.get()) {
-      WifiTurnedOffNotification.show(this, notificationManager, message, ringerOn);
-      shushWindow.finish(null);
-    } else {
-      shushWindow.finish(message);
-    }
+    String message =
+        wifiScheduler.schedule(clockSlider.getEnd().getTime(), clockSlider.getMinutes());
+    shushWindow.finish(message);
   }
 
   private void cancel(boolean showMessage) {
@@ -190,7 +195,7 @@ public final class WifiSchedulerDialog extends BaseActivity {
     }
 
     unregisterTimeoutCallback();
-    String message = showMessage ? getString(R.string.wifi_disabled_indefinitely) : null;
+    String message = showMessage ? wifiScheduler.keepOffMessage() : null;
     shushWindow.finish(message);
   }
 
@@ -204,17 +209,20 @@ public final class WifiSchedulerDialog extends BaseActivity {
 
   @Override protected void onRestoreInstanceState(Bundle savedInstanceState) {
     super.onRestoreInstanceState(savedInstanceState);
-    int minutes = savedInstanceState.getInt(KEY_MINUTES, minutesPreference.get());
+    int minutes = savedInstanceState.getInt(KEY_MINUTES, wifiScheduler.lastMinutes());
     long start = savedInstanceState.getLong(KEY_START, System.currentTimeMillis());
     clockSlider.setStart(new Date(start));
     clockSlider.setMinutes(minutes);
   }
 
   private void createShushDialog() {
-    View view = getLayoutInflater().inflate(R.layout.scheduler_dialog, null);
-    ButterKnife.inject(this, view);
+    Context themedContext = new ContextThemeWrapper(this, R.style.ShushTheme);
+    long start = Metrics.begin();
+    SchedulerView view = new SchedulerView(themedContext);
+    Metrics.end(Metrics.SCHEDULER_VIEW_BUILD, start);
+    clockSlider = view.clockSlider;
 
-    dialog = new AlertDialog.Builder(new ContextThemeWrapper(this, R.style.ShushTheme)) //
+    dialog = new AlertDialog.Builder(themedContext) //
         .setPositiveButton(R.string.disable, new DialogInterface.OnClickListener() {
               public void onClick(DialogInterface dialogInterface, int i) {
                 commit();
@@ -230,8 +238,15 @@ public final class WifiSchedulerDialog extends BaseActivity {
         cancel(true);
       }
     });
+    dialog.setOnShowListener(new DialogInterface.OnShowListener() {
+      public void onShow(DialogInterface dialogInterface) {
+        Metrics.end(Metrics.DIALOG_SHOWN, startNanos);
+      }
+    });
     dialog.setCanceledOnTouchOutside(true);
     dialog.getWindow().setGravity(BOTTOM);
+    SchedulerPrompt.recordFirstFrame(dialog.getWindow().getDecorView(),
+        Metrics.PROMPT_FIRST_FRAME_ACTIVITY, getIntent().getLongExtra(EXTRA_BROADCAST_NANOS, 0));
     dialog.show();
   }
 
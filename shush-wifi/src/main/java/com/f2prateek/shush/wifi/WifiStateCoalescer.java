@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+/**
+ * Collapses the stream of Wi-Fi state broadcasts into the edges worth acting on. A single toggle
+ * is broadcast twice (DISABLING then DISABLED, or ENABLING then ENABLED), so only the first
+ * broadcast after the radio settles into a new state is acted on. Edges that follow the previous
+ * edge within the flap window are held back as {@link #FLAPPING}; once the window has passed
+ * without another edge, {@link #settle} acts on whatever state the radio ended up in.
+ */
+final class WifiStateCoalescer {
+  /**
+   * The states from {@code WifiManager}, repeated here so that this class builds without Android
+   * and can be tested on the JVM.
+   */
+  static final int WIFI_STATE_DISABLING = 0;
+  static final int WIFI_STATE_DISABLED = 1;
+  static final int WIFI_STATE_ENABLING = 2;
+  static final int WIFI_STATE_ENABLED = 3;
+
+  /** Nothing to do for this broadcast. */
+  static final int NONE = 0;
+  /** The radio was just turned off. */
+  static final int TURNED_OFF = 1;
+  /** The radio was just turned on. */
+  static final int TURNED_ON = 2;
+  /**
+   * The radio changed again too soon after the last edge. Call {@link #settle} once the flap
+   * window has passed.
+   */
+  static final int FLAPPING = 3;
+
+  private static final int RADIO_UNKNOWN = 0;
+  private static final int RADIO_OFF = 1;
+  private static final int RADIO_ON = 2;
+
+  private final long flapWindowMillis;
+  /** The state from the last broadcast. */
+  private int radioState = RADIO_UNKNOWN;
+  /** The state we last acted on. */
+  private int actedState = RADIO_UNKNOWN;
+  private long lastEdgeMillis;
+  private int broadcastsReceived;
+  private int actionsTaken;
+
+  WifiStateCoalescer(long flapWindowMillis) {
+    this.flapWindowMillis = flapWindowMillis;
+  }
+
+  long flapWindowMillis() {
+    return flapWindowMillis;
+  }
+
+  /**
+   * Returns the action to take for a broadcast of {@code wifiState} at {@code nowMillis}; one of
+   * {@link #NONE}, {@link #TURNED_OFF}, {@link #TURNED_ON} or {@link #FLAPPING}.
+   */
+  synchronized int onStateChanged(int wifiState, long nowMillis) {
+    broadcastsReceived++;
+
+    int newRadioState = radioState(wifiState);
+    if (newRadioState == RADIO_UNKNOWN || newRadioState == radioState) {
+      return NONE; // the second half of a transition we've already seen
+    }
+    boolean flapping =
+        radioState != RADIO_UNKNOWN && nowMillis - lastEdgeMillis < flapWindowMillis;
+    radioState = newRadioState;
+    lastEdgeMillis = nowMillis;
+    return flapping ? FLAPPING : act();
+  }
+
+  /**
+   * Returns the action to take for a radio that was in {@code wifiState} at {@code nowMillis},
+   * after {@link #FLAPPING}; {@link #NONE} if the flap window hasn't passed since the last edge,
+   * or the radio ended up back in the state we last acted on.
+   */
+  synchronized int settle(int wifiState, long nowMillis) {
+    if (nowMillis - lastEdgeMillis < flapWindowMillis) {
+      return NONE; // a later edge will settle itself
+    }
+    int settledState = radioState(wifiState);
+    if (settledState != RADIO_UNKNOWN && settledState != radioState) {
+      // The broadcast for the last change was missed; count it as an edge now.
+      radioState = settledState;
+      lastEdgeMillis = nowMillis;
+    }
+    return act();
+  }
+
+  private int act() {
+    if (radioState == actedState) {
+      return NONE;
+    }
+    actedState = radioState;
+    actionsTaken++;
+    return radioState == RADIO_OFF ? TURNED_OFF : TURNED_ON;
+  }
+
+  private static int radioState(int wifiState) {
+    switch (wifiState) {
+      case WIFI_STATE_DISABLED:
+      case WIFI_STATE_DISABLING:
+        return RADIO_OFF;
+      case WIFI_STATE_ENABLED:
+      case WIFI_STATE_ENABLING:
+        return RADIO_ON;
+      default:
+        return RADIO_UNKNOWN;
+    }
+  }
+
+  synchronized int broadcastsReceived() {
+    return broadcastsReceived;
+  }
+
+  synchronized int actionsTaken() {
+    return actionsTaken;
+  }
+}
@@ -25,26 +25,39 @@ import android.text.format.DateFormat;
 
 /**
  * Shows a message like "Ringer muted til 2pm' in the status bar. Clicking on
- * this notification immediately restores the ringer.
+ * this notification immediately restores the ringer; its actions push the time back without
+ * opening the scheduler.
  */
 final class WifiTurnedOffNotification {
   private static final int NOTIFICATION_ID = 1;
 
   public static String getMessage(Context context, long onTime) {
-    return String.format(context.getString(R.string.wifi_disabled_until),
-        DateFormat.getTimeFormat(context).format(onTime));
+    return ClockMath.untilMessage(context.getString(R.string.wifi_disabled_until),
+        DateFormat.getTimeFormat(context), onTime);
   }
 
+  /**
+   * Show or update the notification for Wi-Fi scheduled to turn on at {@code onTime} with
+   * {@code ringerOnIntent}. The alarm's precision, tolerance and radios are kept so snoozing can
+   * reschedule it the same way.
+   */
   public static void show(Context context, NotificationManager notificationManager, String message,
-      PendingIntent ringerOnIntent) {
-    Notification notification = new Notification();
-    notification.icon = R.drawable.ic_notification;
-    notification.tickerText = message;
-    notification.flags |= Notification.FLAG_AUTO_CANCEL
-        | Notification.FLAG_ONGOING_EVENT
-        | Notification.FLAG_NO_CLEAR;
-    notification.setLatestEventInfo(context, message, context.getString(R.string.enable_now),
-        ringerOnIntent);
+      PendingIntent ringerOnIntent, long onTime, int precision, long toleranceMillis, int radios) {
+    Notification notification = new Notification.Builder(context) //
+        .setSmallIcon(R.drawable.ic_notification)
+        .setTicker(message)
+        .setContentTitle(message)
+        .setContentText(context.getString(R.string.enable_now))
+        .setContentIntent(ringerOnIntent)
+        .setAutoCancel(true)
+        .setOngoing(true)
+        .setOnlyAlertOnce(true)
+        .addAction(0, context.getString(R.string.snooze_15_minutes),
+            SnoozeWifi.createPendingIntent(context, onTime, precision, toleranceMillis, radios, 15))
+        .addAction(0, context.getString(R.string.snooze_1_hour),
+            SnoozeWifi.createPendingIntent(context, onTime, precision, toleranceMillis, radios, 60))
+        .addAction(0, context.getString(R.string.turn_on_now), ringerOnIntent)
+        .build();
     notificationManager.notify(NOTIFICATION_ID, notification);
   }
 
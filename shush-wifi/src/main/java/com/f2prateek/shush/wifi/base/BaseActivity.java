@@ -20,14 +20,29 @@ package com.f2prateek.shush.wifi.base;
 import android.app.Activity;
 import android.os.Bundle;
 import com.f2prateek.shush.wifi.ShushApp;
+import com.f2prateek.shush.wifi.prefs.PreferenceStore;
+import javax.inject.Inject;
 
 /**
  * Base Activity for injecting into the application graph.
  * Sub-classes are responsible for injecting views.
  */
 public class BaseActivity extends Activity {
+  @Inject protected PreferenceStore preferenceStore;
+
   @Override protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
-    ShushApp.get(this).inject(this);
+    ShushApp.get(this).injectUi(this);
+  }
+
+  @Override protected void onResume() {
+    super.onResume();
+    preferenceStore.onActivityResumed();
+  }
+
+  @Override protected void onPause() {
+    // Don't leave preference writes queued while we're in the background and may be killed.
+    preferenceStore.onActivityPaused();
+    super.onPause();
   }
 }
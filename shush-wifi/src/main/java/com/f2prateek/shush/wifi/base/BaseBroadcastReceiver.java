@@ -24,9 +24,32 @@ import com.f2prateek.shush.wifi.ShushApp;
 
 /**
  * Base BroadcastReceiver for injecting into the application graph.
+ * <p>
+ * Broadcasts are handed straight to the app's background executor with {@link #goAsync()}, so
+ * the main thread never waits on building the object graph, injection or system service calls.
+ * Sub-classes handle them in {@link #onReceiveInBackground}; the broadcast is finished once that
+ * returns.
  */
 public abstract class BaseBroadcastReceiver extends BroadcastReceiver {
-  @Override public void onReceive(Context context, Intent intent) {
-    ShushApp.get(context).inject(this);
+  @Override public final void onReceive(final Context context, final Intent intent) {
+    final PendingResult result = goAsync();
+    Runnable handler = new Runnable() {
+      @Override public void run() {
+        ShushApp.get(context).inject(BaseBroadcastReceiver.this);
+        onReceiveInBackground(context, intent);
+      }
+    };
+    BroadcastHandoff.handOff(ShushApp.get(context).backgroundExecutor(), handler,
+        new BroadcastHandoff.Result() {
+          @Override public void finish() {
+            result.finish();
+          }
+        });
   }
+
+  /**
+   * Handle the broadcast. Called on the background executor, in order with every other receiver
+   * and with the side effects of the screens.
+   */
+  protected abstract void onReceiveInBackground(Context context, Intent intent);
 }
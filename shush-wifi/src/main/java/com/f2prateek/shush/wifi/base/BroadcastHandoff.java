@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.base;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Hands a broadcast from the main thread to an executor, and finishes it once it's been handled,
+ * even if handling throws. The main thread only pays for queueing a task.
+ */
+final class BroadcastHandoff {
+  /** Lets the system know the broadcast has been handled. */
+  interface Result {
+    void finish();
+  }
+
+  static void handOff(Executor executor, final Runnable handler, final Result result) {
+    executor.execute(new Runnable() {
+      @Override public void run() {
+        try {
+          handler.run();
+        } finally {
+          result.finish();
+        }
+      }
+    });
+  }
+
+  private BroadcastHandoff() {
+    // No instances.
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.energy;
+
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * The running totals of {@link EnergyLedger}, one slot for each of the last {@link #DAYS} local
+ * days. A day takes over the slot of the day a week before it, so the totals never grow. This
+ * part doesn't need Android, so it can be tested on the JVM.
+ * <p>
+ * Days are counted in the time zone passed to each call, so a window is booked to the day it
+ * happened on wherever the user is now. Not thread safe.
+ */
+final class DailyTotals {
+  static final int DAYS = 7;
+  private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+  private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+
+  /** The local day each slot holds, counted from the epoch, or -1 for none. */
+  final long[] days = new long[DAYS];
+  final long[] offMillis = new long[DAYS];
+  final long[] savedMicroampHours = new long[DAYS];
+  final int[] batteryDrop = new int[DAYS];
+
+  DailyTotals() {
+    Arrays.fill(days, -1);
+  }
+
+  /**
+   * Add a window from {@code startMillis} until {@code endMillis} with radios drawing
+   * {@code idleMicroamps} turned off, split at midnight so each day gets its own share. The
+   * {@code batteryDrop} is booked to the day the window ended on.
+   */
+  void addWindow(long startMillis, long endMillis, int idleMicroamps, int batteryDrop,
+      TimeZone timeZone) {
+    long from = startMillis;
+    while (from < endMillis) {
+      long day = day(from, timeZone);
+      long to = day(endMillis, timeZone) == day ? endMillis : endOfDay(from, day, timeZone);
+      long windowMillis = to - from;
+      add(day, windowMillis, idleMicroamps * windowMillis / HOUR_MILLIS,
+          to == endMillis ? batteryDrop : 0);
+      from = to;
+    }
+  }
+
+  /** Returns how long radios were off in the {@code days} days up to and including today. */
+  long offMillis(long nowMillis, int days, TimeZone timeZone) {
+    long total = 0;
+    long today = day(nowMillis, timeZone);
+    for (long day = today - Math.min(days, DAYS) + 1; day <= today; day++) {
+      int slot = slot(day);
+      if (this.days[slot] == day) {
+        total += offMillis[slot];
+      }
+    }
+    return total;
+  }
+
+  /** Returns the estimated charge saved in the {@code days} days up to and including today. */
+  long savedMicroampHours(long nowMillis, int days, TimeZone timeZone) {
+    long total = 0;
+    long today = day(nowMillis, timeZone);
+    for (long day = today - Math.min(days, DAYS) + 1; day <= today; day++) {
+      int slot = slot(day);
+      if (this.days[slot] == day) {
+        total += savedMicroampHours[slot];
+      }
+    }
+    return total;
+  }
+
+  /** Returns the battery percentage used during windows spent on battery. */
+  int batteryDropPercent(long nowMillis, int days, TimeZone timeZone) {
+    int total = 0;
+    long today = day(nowMillis, timeZone);
+    for (long day = today - Math.min(days, DAYS) + 1; day <= today; day++) {
+      int slot = slot(day);
+      if (this.days[slot] == day) {
+        total += batteryDrop[slot];
+      }
+    }
+    return total;
+  }
+
+  /** Add to the totals for {@code day}, replacing the totals of the day that used its slot. */
+  private void add(long day, long offMillis, long savedMicroampHours, int batteryDrop) {
+    int slot = slot(day);
+    if (days[slot] != day) {
+      days[slot] = day;
+      this.offMillis[slot] = 0;
+      this.savedMicroampHours[slot] = 0;
+      this.batteryDrop[slot] = 0;
+    }
+    this.offMillis[slot] += offMillis;
+    this.savedMicroampHours[slot] += savedMicroampHours;
+    this.batteryDrop[slot] += batteryDrop;
+  }
+
+  private static int slot(long day) {
+    return (int) (day % DAYS);
+  }
+
+  /** Returns the local day number of {@code millis}, counted from the epoch. */
+  private static long day(long millis, TimeZone timeZone) {
+    return (millis + timeZone.getOffset(millis)) / DAY_MILLIS;
+  }
+
+  /** Returns the first instant after {@code millis}, which is on local {@code day}, that isn't. */
+  private static long endOfDay(long millis, long day, TimeZone timeZone) {
+    // Days aren't always 24 hours long, so search rather than guess the offset at midnight.
+    long low = millis;
+    long high = millis + 2 * DAY_MILLIS;
+    while (high - low > 1) {
+      long mid = (low + high) >>> 1;
+      if (day(mid, timeZone) > day) {
+        high = mid;
+      } else {
+        low = mid;
+      }
+    }
+    return high;
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.energy;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.os.BatteryManager;
+import java.util.TimeZone;
+
+import static android.content.Context.MODE_PRIVATE;
+
+/**
+ * Accounts for the energy saved by each shush window: the time from scheduling a restore to the
+ * radios coming back. The battery is sampled only at the two edges of a window, from the sticky
+ * battery broadcast, and the window is added to the {@link DailyTotals} for the days it spans.
+ * Days are local to the time zone at the time of each call, so they follow the user around.
+ * <p>
+ * Savings are estimated from the typical idle current of each radio, since Android doesn't report
+ * per-radio power.
+ */
+public final class EnergyLedger {
+  /** Typical idle draw of each radio, in microamps, in the order of the {@code Radios} bits. */
+  private static final int[] IDLE_MICROAMPS = {4000, 1000};
+
+  private static final String KEY_WINDOW_START = "window_start";
+  private static final String KEY_WINDOW_RADIOS = "window_radios";
+  private static final String KEY_WINDOW_LEVEL = "window_level";
+  private static final String KEY_WINDOW_PLUGGED = "window_plugged";
+  private static final String KEY_DAY = "day_";
+  private static final String KEY_OFF_MILLIS = "off_millis_";
+  private static final String KEY_SAVED_MICROAMP_HOURS = "saved_uah_";
+  private static final String KEY_BATTERY_DROP = "battery_drop_";
+
+  private static final IntentFilter BATTERY_CHANGED =
+      new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+
+  private final Context context;
+  private final SharedPreferences preferences;
+
+  public EnergyLedger(Context context) {
+    this.context = context;
+    this.preferences = context.getSharedPreferences("shush.energy", MODE_PRIVATE);
+  }
+
+  /** The {@code radios} were turned off at {@code nowMillis}, until some later restore. */
+  public synchronized void windowOpened(long nowMillis, int radios) {
+    Intent battery = context.registerReceiver(null, BATTERY_CHANGED);
+    // Replaces any window that was never closed; we can't know when it ended.
+    preferences.edit()
+        .putLong(KEY_WINDOW_START, nowMillis)
+        .putInt(KEY_WINDOW_RADIOS, radios)
+        .putInt(KEY_WINDOW_LEVEL, levelPercent(battery))
+        .putBoolean(KEY_WINDOW_PLUGGED, isPlugged(battery))
+        .apply();
+  }
+
+  /** The radios came back on at {@code nowMillis}. Does nothing if no window is open. */
+  public synchronized void windowClosed(long nowMillis) {
+    long start = preferences.getLong(KEY_WINDOW_START, -1);
+    if (start == -1 || nowMillis <= start) {
+      return;
+    }
+    int radios = preferences.getInt(KEY_WINDOW_RADIOS, 0);
+    int idleMicroamps = 0;
+    for (int i = 0; i < IDLE_MICROAMPS.length; i++) {
+      if ((radios & (1 << i)) != 0) {
+        idleMicroamps += IDLE_MICROAMPS[i];
+      }
+    }
+
+    // Only a window spent entirely on battery says anything about drain.
+    Intent battery = context.registerReceiver(null, BATTERY_CHANGED);
+    int startLevel = preferences.getInt(KEY_WINDOW_LEVEL, -1);
+    int endLevel = levelPercent(battery);
+    int drop = 0;
+    if (!preferences.getBoolean(KEY_WINDOW_PLUGGED, true) && !isPlugged(battery)
+        && startLevel != -1 && endLevel != -1 && endLevel < startLevel) {
+      drop = startLevel - endLevel;
+    }
+
+    DailyTotals totals = load();
+    totals.addWindow(start, nowMillis, idleMicroamps, drop, TimeZone.getDefault());
+    SharedPreferences.Editor editor = preferences.edit();
+    for (int slot = 0; slot < DailyTotals.DAYS; slot++) {
+      editor.putLong(KEY_DAY + slot, totals.days[slot])
+          .putLong(KEY_OFF_MILLIS + slot, totals.offMillis[slot])
+          .putLong(KEY_SAVED_MICROAMP_HOURS + slot, totals.savedMicroampHours[slot])
+          .putInt(KEY_BATTERY_DROP + slot, totals.batteryDrop[slot]);
+    }
+    editor.remove(KEY_WINDOW_START).apply();
+  }
+
+  /** Returns how long radios were off in the {@code days} days up to and including today. */
+  public synchronized long offMillis(long nowMillis, int days) {
+    return load().offMillis(nowMillis, days, TimeZone.getDefault());
+  }
+
+  /** Returns the estimated charge saved in the {@code days} days up to and including today. */
+  public synchronized long savedMilliampHours(long nowMillis, int days) {
+    return load().savedMicroampHours(nowMillis, days, TimeZone.getDefault()) / 1000;
+  }
+
+  /** Returns the battery percentage used during windows spent on battery. */
+  public synchronized int batteryDropPercent(long nowMillis, int days) {
+    return load().batteryDropPercent(nowMillis, days, TimeZone.getDefault());
+  }
+
+  private DailyTotals load() {
+    DailyTotals totals = new DailyTotals();
+    for (int slot = 0; slot < DailyTotals.DAYS; slot++) {
+      totals.days[slot] = preferences.getLong(KEY_DAY + slot, -1);
+      totals.offMillis[slot] = preferences.getLong(KEY_OFF_MILLIS + slot, 0);
+      totals.savedMicroampHours[slot] = preferences.getLong(KEY_SAVED_MICROAMP_HOURS + slot, 0);
+      totals.batteryDrop[slot] = preferences.getInt(KEY_BATTERY_DROP + slot, 0);
+    }
+    return totals;
+  }
+
+  private static int levelPercent(Intent battery) {
+    if (battery == null) {
+      return -1;
+    }
+    int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+    int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, 100);
+    return level < 0 || scale <= 0 ? -1 : level * 100 / scale;
+  }
+
+  private static boolean isPlugged(Intent battery) {
+    return battery == null || battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An append-only log of when Wi-Fi was turned off, for how long the user asked, and when it came
+ * back. Records are fixed width and stored in a ring, so the oldest are overwritten once the log
+ * is full and it never grows past {@link #CAPACITY} records.
+ * <p>
+ * The log is backed by a memory-mapped file: appends are plain stores into the mapping, which
+ * don't allocate and survive the process being killed.
+ */
+public final class WifiEventLog {
+  /** Wi-Fi was turned off. */
+  public static final int WIFI_OFF = 1;
+  /** The user chose when Wi-Fi should come back on. */
+  public static final int SCHEDULED = 2;
+  /** We turned Wi-Fi back on as scheduled. */
+  public static final int WIFI_RESTORED = 3;
+  /** Wi-Fi was turned on, by us or by the user. */
+  public static final int WIFI_ON = 4;
+
+  public static final int CAPACITY = 1024;
+
+  private static final int MAGIC = 0x53485348; // "SHSH"
+  private static final int VERSION = 1;
+  // Header: magic, version, index of the next record to write, number of records.
+  private static final int HEADER_SIZE = 16;
+  private static final int OFFSET_NEXT = 8;
+  private static final int OFFSET_COUNT = 12;
+  // Record: timestamp, type, requested minutes, actual minutes, padding.
+  private static final int RECORD_SIZE = 24;
+  private static final int OFFSET_TYPE = 8;
+  private static final int OFFSET_REQUESTED = 12;
+  private static final int OFFSET_ACTUAL = 16;
+
+  static final int SIZE = HEADER_SIZE + CAPACITY * RECORD_SIZE;
+
+  /** Open the log stored in {@code file}, creating it if needed. */
+  public static WifiEventLog open(File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      randomAccessFile.setLength(SIZE);
+      // The mapping stays valid after the file is closed.
+      return new WifiEventLog(
+          randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SIZE));
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  /** Returns a log that isn't saved anywhere, for when the file can't be opened. */
+  public static WifiEventLog inMemory() {
+    return new WifiEventLog(ByteBuffer.allocate(SIZE));
+  }
+
+  private final ByteBuffer buffer;
+
+  WifiEventLog(ByteBuffer buffer) {
+    this.buffer = buffer;
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+        || buffer.getInt(OFFSET_NEXT) >= CAPACITY || buffer.getInt(OFFSET_COUNT) > CAPACITY) {
+      clear();
+    }
+  }
+
+  public synchronized void append(long timeMillis, int type, int requestedMinutes,
+      int actualMinutes) {
+    int next = buffer.getInt(OFFSET_NEXT);
+    int position = HEADER_SIZE + next * RECORD_SIZE;
+    buffer.putLong(position, timeMillis);
+    buffer.putInt(position + OFFSET_TYPE, type);
+    buffer.putInt(position + OFFSET_REQUESTED, requestedMinutes);
+    buffer.putInt(position + OFFSET_ACTUAL, actualMinutes);
+    // Publish the record only after it has been written.
+    buffer.putInt(OFFSET_COUNT, Math.min(CAPACITY, buffer.getInt(OFFSET_COUNT) + 1));
+    buffer.putInt(OFFSET_NEXT, (next + 1) % CAPACITY);
+  }
+
+  /** Returns the number of records, at most {@link #CAPACITY}. */
+  public synchronized int count() {
+    return buffer.getInt(OFFSET_COUNT);
+  }
+
+  /** Returns the index of the newest record of {@code type}, or -1 if there are none. */
+  public synchronized int lastIndexOf(int type) {
+    for (int i = count() - 1; i >= 0; i--) {
+      if (typeAt(i) == type) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // Records are indexed from 0, the oldest, thru count() - 1, the newest.
+
+  public synchronized long timeMillisAt(int index) {
+    return buffer.getLong(position(index));
+  }
+
+  public synchronized int typeAt(int index) {
+    return buffer.getInt(position(index) + OFFSET_TYPE);
+  }
+
+  public synchronized int requestedMinutesAt(int index) {
+    return buffer.getInt(position(index) + OFFSET_REQUESTED);
+  }
+
+  public synchronized int actualMinutesAt(int index) {
+    return buffer.getInt(position(index) + OFFSET_ACTUAL);
+  }
+
+  public synchronized void clear() {
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(OFFSET_NEXT, 0);
+    buffer.putInt(OFFSET_COUNT, 0);
+  }
+
+  private int position(int index) {
+    int count = count();
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("index " + index + " of " + count);
+    }
+    int oldest = (buffer.getInt(OFFSET_NEXT) - count + CAPACITY) % CAPACITY;
+    return HEADER_SIZE + ((oldest + index) % CAPACITY) * RECORD_SIZE;
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.metrics;
+
+import android.view.Choreographer;
+
+/**
+ * Watches the frames of a single interaction, like a drag of the clock slider. While running, it
+ * records the interval between consecutive vsyncs, how many vsyncs each interval missed, and how
+ * long the view took in {@code onDraw}. Everything is counted into fixed-size tables, so nothing
+ * is allocated per frame.
+ * <p>
+ * <pre>
+ * monitor.start();         // on touch down
+ * long draw = monitor.beginDraw();
+ * // ... draw ...
+ * monitor.endDraw(draw);
+ * monitor.stop();          // on touch up or cancel
+ * Ln.i(monitor.summary());
+ * </pre>
+ * Must be used from the main thread.
+ */
+public final class FrameMonitor implements Choreographer.FrameCallback {
+  /** Missed vsyncs are counted per frame; the last bucket holds this many or more. */
+  private static final int MISSED_BUCKETS = 8;
+  private static final int[] PERCENTILES = {50, 90, 99};
+
+  private final long vsyncNanos;
+  private final LatencyHistogram frameIntervals = new LatencyHistogram();
+  private final LatencyHistogram drawDurations = new LatencyHistogram();
+  private final long[] missedVsyncs = new long[MISSED_BUCKETS];
+  private long jankyFrames;
+  private boolean running;
+  private long lastFrameNanos;
+
+  /** @param refreshRate the display's refresh rate, in frames per second. */
+  public FrameMonitor(float refreshRate) {
+    vsyncNanos = (long) (1000000000L / (refreshRate > 0 ? refreshRate : 60));
+  }
+
+  /** Starts watching frames, if it isn't already. */
+  public void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    lastFrameNanos = 0;
+    Choreographer.getInstance().postFrameCallback(this);
+  }
+
+  /** Stops watching frames; what has been recorded is kept until {@link #clear}. */
+  public void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    Choreographer.getInstance().removeFrameCallback(this);
+  }
+
+  @Override public void doFrame(long frameTimeNanos) {
+    if (!running) {
+      return;
+    }
+    if (lastFrameNanos != 0) {
+      long interval = frameTimeNanos - lastFrameNanos;
+      frameIntervals.record(interval);
+      // Rounded, so that ordinary vsync jitter doesn't count as a miss.
+      long missed = (interval + vsyncNanos / 2) / vsyncNanos - 1;
+      if (missed > 0) {
+        jankyFrames++;
+      }
+      missedVsyncs[(int) Math.max(0, Math.min(MISSED_BUCKETS - 1, missed))]++;
+    }
+    lastFrameNanos = frameTimeNanos;
+    Choreographer.getInstance().postFrameCallback(this);
+  }
+
+  /** Returns the start of a draw, to be passed to {@link #endDraw}; 0 when not running. */
+  public long beginDraw() {
+    return running ? System.nanoTime() : 0;
+  }
+
+  public void endDraw(long beginNanos) {
+    if (beginNanos == 0) {
+      return;
+    }
+    drawDurations.record(System.nanoTime() - beginNanos);
+  }
+
+  /** Returns a human readable summary of what was recorded, on one line. */
+  public String summary() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("janky=").append(jankyFrames);
+    append(builder, " interval", frameIntervals);
+    builder.append(" missed_vsyncs=[");
+    for (int i = 0; i < MISSED_BUCKETS; i++) {
+      if (i > 0) {
+        builder.append(' ');
+      }
+      builder.append(i).append(i == MISSED_BUCKETS - 1 ? "+:" : ":").append(missedVsyncs[i]);
+    }
+    builder.append(']');
+    append(builder, " draw", drawDurations);
+    return builder.toString();
+  }
+
+  private static void append(StringBuilder builder, String name, LatencyHistogram histogram) {
+    builder.append(name).append(": count=").append(histogram.count());
+    for (int percentile : PERCENTILES) {
+      builder.append(" p")
+          .append(percentile)
+          .append("<=")
+          .append(histogram.percentileMicros(percentile))
+          .append("us");
+    }
+    builder.append(" max=").append(histogram.maxMicros()).append("us");
+  }
+
+  public void clear() {
+    frameIntervals.clear();
+    drawDurations.clear();
+    for (int i = 0; i < MISSED_BUCKETS; i++) {
+      missedVsyncs[i] = 0;
+    }
+    jankyFrames = 0;
+    lastFrameNanos = 0;
+  }
+}
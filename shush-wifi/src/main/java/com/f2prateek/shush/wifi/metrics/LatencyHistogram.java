@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.metrics;
+
+/**
+ * A fixed-size histogram of durations. Bucket {@code i} counts durations shorter than
+ * {@code 2^i} microseconds (and at least half that), so 32 buckets cover everything from under a
+ * microsecond to over half an hour without allocating after construction.
+ */
+public final class LatencyHistogram {
+  private static final int BUCKETS = 32;
+
+  private final long[] counts = new long[BUCKETS];
+  private long count;
+  private long maxMicros;
+
+  public synchronized void record(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    counts[bucket]++;
+    count++;
+    if (micros > maxMicros) {
+      maxMicros = micros;
+    }
+  }
+
+  public synchronized long count() {
+    return count;
+  }
+
+  public synchronized long maxMicros() {
+    return maxMicros;
+  }
+
+  /**
+   * Returns an upper bound, in microseconds, of the given percentile (0-100) of recorded
+   * durations, or 0 if nothing has been recorded.
+   */
+  public synchronized long percentileMicros(int percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (count * percentile + 99) / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS - 1; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(1L << i, maxMicros);
+      }
+    }
+    return maxMicros;
+  }
+
+  public synchronized void clear() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = 0;
+    }
+    count = 0;
+    maxMicros = 0;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.metrics;
+
+import com.f2prateek.shush.wifi.BuildConfig;
+
+/**
+ * Latency histograms for the spans between the user turning Wi-Fi off and the slider appearing.
+ * Only enabled in debug builds; in release builds every call returns immediately.
+ * <p>
+ * <pre>
+ * long start = Metrics.begin();
+ * // ...
+ * Metrics.end(Metrics.GRAPH_BUILD, start);
+ * </pre>
+ */
+public final class Metrics {
+  private static final boolean ENABLED = BuildConfig.DEBUG;
+
+  /** {@code ShushApp.onCreate}. */
+  public static final int APP_CREATE = 0;
+  /** Building the receiver object graph. */
+  public static final int GRAPH_BUILD = 1;
+  /** Adding the screen bindings to the object graph. */
+  public static final int UI_GRAPH_BUILD = 2;
+  /** {@code OnWifiStateChanged.onReceive}. */
+  public static final int WIFI_STATE_RECEIVE = 3;
+  /** {@code WifiSchedulerDialog.onStart} until its dialog is shown. */
+  public static final int DIALOG_SHOWN = 4;
+  /** Turning off the other radios and scheduling the alarm to restore them. */
+  public static final int ALARM_SCHEDULED = 5;
+  /** How late an exact alarm to turn the wifi on fired. */
+  public static final int ALARM_DRIFT_EXACT = 6;
+  /** How late a batched alarm to turn the wifi on fired. */
+  public static final int ALARM_DRIFT_BATCHED = 7;
+  /** How late a non-waking alarm to turn the wifi on fired. */
+  public static final int ALARM_DRIFT_NEXT_WAKE = 8;
+  /** From the Wi-Fi off broadcast until the scheduler activity draws its first frame. */
+  public static final int PROMPT_FIRST_FRAME_ACTIVITY = 9;
+  /** From the Wi-Fi off broadcast until the scheduler overlay draws its first frame. */
+  public static final int PROMPT_FIRST_FRAME_OVERLAY = 10;
+  /** Building the scheduler dialog's content. */
+  public static final int SCHEDULER_VIEW_BUILD = 11;
+  /** {@code WelcomeScreen.onResume} until its next frame is drawn. */
+  public static final int WELCOME_RESUME = 12;
+
+  private static final String[] NAMES = {
+      "app_create", "graph_build", "ui_graph_build", "wifi_state_receive", "dialog_shown",
+      "alarm_scheduled", "alarm_drift_exact", "alarm_drift_batched", "alarm_drift_next_wake",
+      "prompt_first_frame_activity", "prompt_first_frame_overlay", "scheduler_view_build",
+      "welcome_resume"
+  };
+  private static final int[] PERCENTILES = {50, 90, 99};
+  private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[NAMES.length];
+
+  static {
+    for (int i = 0; i < HISTOGRAMS.length; i++) {
+      HISTOGRAMS[i] = new LatencyHistogram();
+    }
+  }
+
+  private Metrics() {
+    // No instances.
+  }
+
+  /** Returns the start of a span, to be passed to {@link #end}. */
+  public static long begin() {
+    if (!ENABLED) {
+      return 0;
+    }
+    return System.nanoTime();
+  }
+
+  /** Records the time since {@code beginNanos} for the given span. */
+  public static void end(int span, long beginNanos) {
+    if (!ENABLED || beginNanos == 0) {
+      return;
+    }
+    HISTOGRAMS[span].record(System.nanoTime() - beginNanos);
+  }
+
+  /** Records a duration that wasn't measured with {@link #begin}, like an alarm's lateness. */
+  public static void record(int span, long nanos) {
+    if (!ENABLED) {
+      return;
+    }
+    HISTOGRAMS[span].record(nanos);
+  }
+
+  /** Returns a human readable summary of every span, one per line. */
+  public static String dump() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < HISTOGRAMS.length; i++) {
+      LatencyHistogram histogram = HISTOGRAMS[i];
+      builder.append(NAMES[i]).append(": count=").append(histogram.count());
+      for (int percentile : PERCENTILES) {
+        builder.append(" p")
+            .append(percentile)
+            .append("<=")
+            .append(histogram.percentileMicros(percentile))
+            .append("us");
+      }
+      builder.append(" max=").append(histogram.maxMicros()).append("us\n");
+    }
+    return builder.toString();
+  }
+
+  public static void clear() {
+    for (LatencyHistogram histogram : HISTOGRAMS) {
+      histogram.clear();
+    }
+  }
+}
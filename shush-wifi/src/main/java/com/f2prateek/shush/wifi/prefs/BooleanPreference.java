@@ -19,34 +19,62 @@ package com.f2prateek.shush.wifi.prefs;
 
 import android.content.SharedPreferences;
 
-public class BooleanPreference {
-  private final SharedPreferences preferences;
-  private final String key;
+public class BooleanPreference extends Preference<BooleanPreference.Listener> {
+  /** Told about changes to a preference, on the main thread. */
+  public interface Listener {
+    void onChanged(boolean value);
+  }
+
   private final boolean defaultValue;
+  private boolean value;
 
-  public BooleanPreference(SharedPreferences preferences, String key) {
-    this(preferences, key, false);
+  public BooleanPreference(PreferenceStore store, String key) {
+    this(store, key, false);
   }
 
-  public BooleanPreference(SharedPreferences preferences, String key, boolean defaultValue) {
-    this.preferences = preferences;
-    this.key = key;
+  public BooleanPreference(PreferenceStore store, String key, boolean defaultValue) {
+    super(store, key);
     this.defaultValue = defaultValue;
   }
 
   public boolean get() {
-    return preferences.getBoolean(key, defaultValue);
+    synchronized (store) {
+      load();
+      return value;
+    }
   }
 
-  public boolean isSet() {
-    return preferences.contains(key);
+  public void set(boolean value) {
+    boolean changed;
+    synchronized (store) {
+      load();
+      changed = value != this.value;
+      this.value = value;
+      enqueueSet();
+    }
+    if (changed) {
+      postChanged();
+    }
   }
 
-  public void set(boolean value) {
-    preferences.edit().putBoolean(key, value).apply();
+  @Override boolean read(SharedPreferences preferences) {
+    boolean newValue = preferences.getBoolean(key, defaultValue);
+    boolean changed = newValue != value;
+    value = newValue;
+    return changed;
+  }
+
+  @Override boolean reset() {
+    boolean changed = value != defaultValue;
+    value = defaultValue;
+    return changed;
+  }
+
+  @Override void put(SharedPreferences.Editor editor) {
+    editor.putBoolean(key, value);
   }
 
-  public void delete() {
-    preferences.edit().remove(key).apply();
+  @Override void dispatch(Listener listener) {
+    listener.onChanged(get());
   }
 }
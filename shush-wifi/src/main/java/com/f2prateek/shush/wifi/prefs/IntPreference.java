@@ -19,34 +19,62 @@ package com.f2prateek.shush.wifi.prefs;
 
 import android.content.SharedPreferences;
 
-public class IntPreference {
-  private final SharedPreferences preferences;
-  private final String key;
+public class IntPreference extends Preference<IntPreference.Listener> {
+  /** Told about changes to a preference, on the main thread. */
+  public interface Listener {
+    void onChanged(int value);
+  }
+
   private final int defaultValue;
+  private int value;
 
-  public IntPreference(SharedPreferences preferences, String key) {
-    this(preferences, key, 0);
+  public IntPreference(PreferenceStore store, String key) {
+    this(store, key, 0);
   }
 
-  public IntPreference(SharedPreferences preferences, String key, int defaultValue) {
-    this.preferences = preferences;
-    this.key = key;
+  public IntPreference(PreferenceStore store, String key, int defaultValue) {
+    super(store, key);
     this.defaultValue = defaultValue;
   }
 
   public int get() {
-    return preferences.getInt(key, defaultValue);
+    synchronized (store) {
+      load();
+      return value;
+    }
   }
 
-  public boolean isSet() {
-    return preferences.contains(key);
+  public void set(int value) {
+    boolean changed;
+    synchronized (store) {
+      load();
+      changed = value != this.value;
+      this.value = value;
+      enqueueSet();
+    }
+    if (changed) {
+      postChanged();
+    }
   }
 
-  public void set(int value) {
-    preferences.edit().putInt(key, value).apply();
+  @Override boolean read(SharedPreferences preferences) {
+    int newValue = preferences.getInt(key, defaultValue);
+    boolean changed = newValue != value;
+    value = newValue;
+    return changed;
+  }
+
+  @Override boolean reset() {
+    boolean changed = value != defaultValue;
+    value = defaultValue;
+    return changed;
+  }
+
+  @Override void put(SharedPreferences.Editor editor) {
+    editor.putInt(key, value);
   }
 
-  public void delete() {
-    preferences.edit().remove(key).apply();
+  @Override void dispatch(Listener listener) {
+    listener.onChanged(get());
   }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.prefs;
+
+import android.content.SharedPreferences;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A value in the {@link PreferenceStore}, cached in memory after it's first read, and written
+ * behind. Subclasses keep the value in a field of its own type, so reading it never boxes, and
+ * only adapt it to {@link SharedPreferences}. Every field is guarded by the store.
+ *
+ * @param <L> told about changes, on the main thread
+ */
+public abstract class Preference<L> {
+  final PreferenceStore store;
+  final String key;
+
+  /** Only read from disk the first time it's needed. */
+  private boolean loaded;
+  private boolean present;
+  private final PreferenceStore.PendingWrite write = new PreferenceStore.PendingWrite() {
+    @Override public void writeTo(SharedPreferences.Editor editor) {
+      if (present) {
+        put(editor);
+      } else {
+        editor.remove(key);
+      }
+    }
+  };
+
+  /** Only touched on the main thread. */
+  private final List<L> listeners = new ArrayList<L>();
+  private final Runnable notifyListeners = new Runnable() {
+    @Override public void run() {
+      for (int i = 0, size = listeners.size(); i < size; i++) {
+        dispatch(listeners.get(i));
+      }
+    }
+  };
+  private final PreferenceStore.KeyObserver keyObserver = new PreferenceStore.KeyObserver() {
+    @Override public void onKeyChanged() {
+      boolean changed;
+      synchronized (store) {
+        if (!loaded || store.isPending(write)) {
+          return; // nothing cached yet, or our own newer value is about to be written
+        }
+        SharedPreferences preferences = store.preferences();
+        present = preferences.contains(key);
+        changed = read(preferences);
+      }
+      if (changed) {
+        store.runOnMainThread(notifyListeners);
+      }
+    }
+  };
+
+  Preference(PreferenceStore store, String key) {
+    this.store = store;
+    this.key = key;
+    store.observe(key, keyObserver);
+  }
+
+  public boolean isSet() {
+    synchronized (store) {
+      load();
+      return present;
+    }
+  }
+
+  public void delete() {
+    boolean changed;
+    synchronized (store) {
+      load();
+      changed = reset();
+      present = false;
+      store.enqueue(write);
+    }
+    if (changed) {
+      store.runOnMainThread(notifyListeners);
+    }
+  }
+
+  /**
+   * Start telling {@code listener} about changes, beginning with the current value. Must be called
+   * on the main thread, and balanced with {@link #unsubscribe} when the caller goes away.
+   */
+  public void subscribe(L listener) {
+    listeners.add(listener);
+    dispatch(listener);
+  }
+
+  public void unsubscribe(L listener) {
+    listeners.remove(listener);
+  }
+
+  /** Must be called with the store held, before the cached value is touched. */
+  final void load() {
+    if (loaded) {
+      return;
+    }
+    SharedPreferences preferences = store.preferences();
+    present = preferences.contains(key);
+    read(preferences);
+    loaded = true;
+  }
+
+  /** Write the cached value, which was just set, behind. Must be called with the store held. */
+  final void enqueueSet() {
+    present = true;
+    store.enqueue(write);
+  }
+
+  final void postChanged() {
+    store.runOnMainThread(notifyListeners);
+  }
+
+  /** Cache the stored value, or the default. Returns true if the cached value changed. */
+  abstract boolean read(SharedPreferences preferences);
+
+  /** Cache the default value. Returns true if the cached value changed. */
+  abstract boolean reset();
+
+  abstract void put(SharedPreferences.Editor editor);
+
+  /** Tell {@code listener} the current value. Called on the main thread. */
+  abstract void dispatch(L listener);
+}
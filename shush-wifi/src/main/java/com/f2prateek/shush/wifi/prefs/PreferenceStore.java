@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.prefs;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-behind storage for each {@link Preference}. Preferences keep their values in memory and
+ * queue a write here when changed. While an activity is resumed,
+ * queued writes are applied together in a single {@link SharedPreferences.Editor#apply()} once no
+ * write has arrived for {@link #QUIET_MILLIS}, or right away on {@link #flush()}.
+ * <p>
+ * Activities report when they resume and pause, and flush when paused, so the platform waits for
+ * the write exactly as it does for an {@code apply()} made by the activity itself. Writes made
+ * while no activity is resumed are applied right away; see {@link WriteBatcher}.
+ * <p>
+ * The store is also the one {@link SharedPreferences.OnSharedPreferenceChangeListener} for these
+ * preferences, and routes each changed key to the preference that owns it.
+ */
+public final class PreferenceStore implements SharedPreferences.OnSharedPreferenceChangeListener {
+  static final long QUIET_MILLIS = 500;
+
+  /** A change to a single key, written when the store flushes. */
+  interface PendingWrite {
+    void writeTo(SharedPreferences.Editor editor);
+  }
+
+  /** Told when its key changes on disk. */
+  interface KeyObserver {
+    void onKeyChanged();
+  }
+
+  private final SharedPreferences preferences;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Map<String, KeyObserver> keyObservers = new HashMap<String, KeyObserver>();
+  private final WriteBatcher<PendingWrite> batcher;
+
+  public PreferenceStore(final SharedPreferences preferences) {
+    this.preferences = preferences;
+    batcher = new WriteBatcher<PendingWrite>(QUIET_MILLIS, new WriteBatcher.Timer() {
+      @Override public void schedule(Runnable task, long delayMillis) {
+        handler.postDelayed(task, delayMillis);
+      }
+
+      @Override public void cancel(Runnable task) {
+        handler.removeCallbacks(task);
+      }
+    }, new WriteBatcher.Sink<PendingWrite>() {
+      @Override public void write(List<PendingWrite> batch) {
+        SharedPreferences.Editor editor = preferences.edit();
+        for (int i = 0, size = batch.size(); i < size; i++) {
+          batch.get(i).writeTo(editor);
+        }
+        editor.apply();
+      }
+    }, this);
+    preferences.registerOnSharedPreferenceChangeListener(this);
+  }
+
+  SharedPreferences preferences() {
+    return preferences;
+  }
+
+  synchronized void observe(String key, KeyObserver observer) {
+    keyObservers.put(key, observer);
+  }
+
+  @Override public void onSharedPreferenceChanged(SharedPreferences sharedPreferences,
+      String key) {
+    KeyObserver observer;
+    synchronized (this) {
+      observer = keyObservers.get(key);
+    }
+    if (observer != null) {
+      observer.onKeyChanged();
+    }
+  }
+
+  /** Run on the main thread; immediately if we're already on it. */
+  void runOnMainThread(Runnable runnable) {
+    if (Looper.myLooper() == Looper.getMainLooper()) {
+      runnable.run();
+    } else {
+      handler.post(runnable);
+    }
+  }
+
+  boolean isPending(PendingWrite write) {
+    return batcher.isPending(write);
+  }
+
+  /** Queue a write, to be applied with the next batch. */
+  void enqueue(PendingWrite write) {
+    batcher.enqueue(write);
+  }
+
+  /** Write everything that's queued in a single batch. */
+  public void flush() {
+    batcher.flush();
+  }
+
+  /** Hold writes for batching until the matching {@link #onActivityPaused}. */
+  public void onActivityResumed() {
+    batcher.onActivityResumed();
+  }
+
+  /** Write everything that's queued, and stop batching if no other activity is resumed. */
+  public void onActivityPaused() {
+    batcher.onActivityPaused();
+  }
+
+  /** Returns the number of batches written to disk. */
+  public int applyCount() {
+    return batcher.batchesWritten();
+  }
+}
@@ -18,7 +18,8 @@
 package com.f2prateek.shush.wifi.prefs;
 
 import android.content.SharedPreferences;
-import android.content.res.Resources;
+import com.f2prateek.shush.wifi.radio.Radios;
+import com.f2prateek.shush.wifi.schedule.Precision;
 import dagger.Module;
 import dagger.Provides;
 import javax.inject.Singleton;
@@ -26,20 +27,61 @@ import javax.inject.Singleton;
 @Module(complete = false, library = true)
 public final class PreferencesModule {
   public static final int DEFAULT_MINUTES = 120; // Two Hours
+  public static final int DEFAULT_ALARM_TOLERANCE_MINUTES = 15;
 
-  @Provides @Singleton @Minutes IntPreference provideMinutesPreference(
+  @Provides @Singleton PreferenceStore providePreferenceStore(
       final SharedPreferences sharedPreferences) {
-    return new IntPreference(sharedPreferences, "minutes", DEFAULT_MINUTES);
+    return new PreferenceStore(sharedPreferences);
+  }
+
+  @Provides @Singleton @Minutes IntPreference provideMinutesPreference(
+      final PreferenceStore preferenceStore) {
+    return new IntPreference(preferenceStore, "minutes", DEFAULT_MINUTES);
+  }
+
+  @Provides @Singleton @AlarmPrecision IntPreference provideAlarmPrecisionPreference(
+      final PreferenceStore preferenceStore) {
+    return new IntPreference(preferenceStore, "alarm_precision", Precision.EXACT);
+  }
+
+  @Provides @Singleton @AlarmToleranceMinutes IntPreference provideAlarmTolerancePreference(
+      final PreferenceStore preferenceStore) {
+    return new IntPreference(preferenceStore, "alarm_tolerance_minutes",
+        DEFAULT_ALARM_TOLERANCE_MINUTES);
   }
 
-  @Provides @Singleton @Color IntPreference provideColorPreference(
-      final SharedPreferences sharedPreferences, final Resources resources) {
-    return new IntPreference(sharedPreferences, "color",
-        resources.getColor(android.R.color.holo_blue_bright));
+  @Provides @Singleton @DurationHistory StringPreference provideDurationHistoryPreference(
+      final PreferenceStore preferenceStore) {
+    return new StringPreference(preferenceStore, "duration_history");
   }
 
   @Provides @Singleton @NotificationsEnabled BooleanPreference provideNotificationsPreference(
-      final SharedPreferences sharedPreferences) {
-    return new BooleanPreference(sharedPreferences, "notifications_enabled", true);
+      final PreferenceStore preferenceStore) {
+    return new BooleanPreference(preferenceStore, "notifications_enabled", true);
+  }
+
+  @Provides @Singleton @ShushedRadios IntPreference provideShushedRadiosPreference(
+      final PreferenceStore preferenceStore) {
+    return new IntPreference(preferenceStore, "shushed_radios", Radios.WIFI);
+  }
+
+  @Provides @Singleton @Paused BooleanPreference providePausedPreference(
+      final PreferenceStore preferenceStore) {
+    return new BooleanPreference(preferenceStore, "paused", false);
+  }
+
+  @Provides @Singleton @QuietHours StringPreference provideQuietHoursPreference(
+      final PreferenceStore preferenceStore) {
+    return new StringPreference(preferenceStore, "quiet_hours");
+  }
+
+  @Provides @Singleton @QuietHoursRadios IntPreference provideQuietHoursRadiosPreference(
+      final PreferenceStore preferenceStore) {
+    return new IntPreference(preferenceStore, "quiet_hours_radios", 0);
+  }
+
+  @Provides @Singleton @OverlayPrompt BooleanPreference provideOverlayPromptPreference(
+      final PreferenceStore preferenceStore) {
+    return new BooleanPreference(preferenceStore, "overlay_prompt", false);
   }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.prefs;
+
+import android.content.SharedPreferences;
+
+public class StringPreference extends Preference<StringPreference.Listener> {
+  /** Told about changes to a preference, on the main thread. */
+  public interface Listener {
+    void onChanged(String value);
+  }
+
+  private final String defaultValue;
+  private String value;
+
+  public StringPreference(PreferenceStore store, String key) {
+    this(store, key, null);
+  }
+
+  public StringPreference(PreferenceStore store, String key, String defaultValue) {
+    super(store, key);
+    this.defaultValue = defaultValue;
+  }
+
+  public String get() {
+    synchronized (store) {
+      load();
+      return value;
+    }
+  }
+
+  public void set(String value) {
+    boolean changed;
+    synchronized (store) {
+      load();
+      changed = !equal(value, this.value);
+      this.value = value;
+      enqueueSet();
+    }
+    if (changed) {
+      postChanged();
+    }
+  }
+
+  @Override boolean read(SharedPreferences preferences) {
+    String newValue = preferences.getString(key, defaultValue);
+    boolean changed = !equal(newValue, value);
+    value = newValue;
+    return changed;
+  }
+
+  @Override boolean reset() {
+    boolean changed = !equal(value, defaultValue);
+    value = defaultValue;
+    return changed;
+  }
+
+  @Override void put(SharedPreferences.Editor editor) {
+    editor.putString(key, value);
+  }
+
+  @Override void dispatch(Listener listener) {
+    listener.onChanged(get());
+  }
+
+  private static boolean equal(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
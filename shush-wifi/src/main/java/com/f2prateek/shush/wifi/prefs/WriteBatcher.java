@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.prefs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides when queued writes are written, for {@link PreferenceStore}. This part doesn't need
+ * Android, so it can be tested on the JVM.
+ * <p>
+ * While an activity is resumed, writes are held until none has arrived for the quiet period, and
+ * the activity writes whatever is left when it pauses. With no activity resumed, like in a
+ * receiver, an overlay or a background task, nothing would write them before the process could be
+ * killed, so each write goes out right away, as a plain {@code apply()} would.
+ */
+final class WriteBatcher<W> {
+  /** Runs tasks later, on the owner's thread. */
+  interface Timer {
+    void schedule(Runnable task, long delayMillis);
+
+    void cancel(Runnable task);
+  }
+
+  /** Writes a batch of queued writes in one go. */
+  interface Sink<W> {
+    void write(List<W> batch);
+  }
+
+  private final long quietMillis;
+  private final Timer timer;
+  private final Sink<W> sink;
+  private final Object lock;
+  private final List<W> pending = new ArrayList<W>();
+  private int resumedActivities;
+  private int batchesWritten;
+  private final Runnable flushWhenQuiet = new Runnable() {
+    @Override public void run() {
+      flush();
+    }
+  };
+
+  /** @param lock guards the batcher, and is held while the sink writes. */
+  WriteBatcher(long quietMillis, Timer timer, Sink<W> sink, Object lock) {
+    this.quietMillis = quietMillis;
+    this.timer = timer;
+    this.sink = sink;
+    this.lock = lock;
+  }
+
+  /** Queue a write, pushing back the flush until writes stop for a while. */
+  void enqueue(W write) {
+    synchronized (lock) {
+      if (!pending.contains(write)) {
+        pending.add(write);
+      }
+      if (resumedActivities == 0) {
+        flush();
+        return;
+      }
+      timer.cancel(flushWhenQuiet);
+      timer.schedule(flushWhenQuiet, quietMillis);
+    }
+  }
+
+  boolean isPending(W write) {
+    synchronized (lock) {
+      return pending.contains(write);
+    }
+  }
+
+  /** Write everything that's queued in a single batch. */
+  void flush() {
+    synchronized (lock) {
+      timer.cancel(flushWhenQuiet);
+      if (pending.isEmpty()) {
+        return;
+      }
+      sink.write(pending);
+      pending.clear();
+      batchesWritten++;
+    }
+  }
+
+  void onActivityResumed() {
+    synchronized (lock) {
+      resumedActivities++;
+    }
+  }
+
+  void onActivityPaused() {
+    synchronized (lock) {
+      resumedActivities = Math.max(0, resumedActivities - 1);
+      flush();
+    }
+  }
+
+  int batchesWritten() {
+    synchronized (lock) {
+      return batchesWritten;
+    }
+  }
+}
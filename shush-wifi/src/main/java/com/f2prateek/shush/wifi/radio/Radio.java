@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.radio;
+
+/** A radio that Shush can turn off and back on. */
+public interface Radio {
+  /** Returns false if this device doesn't have the radio. */
+  boolean isAvailable();
+
+  boolean isEnabled();
+
+  /** Asks the radio to turn on or off. The change may complete after this returns. */
+  void setEnabled(boolean enabled);
+}
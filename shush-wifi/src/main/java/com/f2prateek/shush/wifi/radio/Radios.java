@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.radio;
+
+/**
+ * Every radio Shush controls, addressed by a bit mask so a set of them fits in an int and can
+ * travel in a single alarm's intent. All the radios due at one time are toggled in one call.
+ */
+public final class Radios {
+  public static final int WIFI = 1;
+  public static final int BLUETOOTH = 1 << 1;
+
+  /** {@code radios[i]} is the radio for bit {@code 1 << i}. */
+  private final Radio[] radios;
+
+  /** Radios in bit order: Wi-Fi first, then Bluetooth. */
+  public Radios(Radio... radios) {
+    this.radios = radios;
+  }
+
+  /** Returns the mask of radios that are on. */
+  public int enabled() {
+    int mask = 0;
+    for (int i = 0; i < radios.length; i++) {
+      if (radios[i].isAvailable() && radios[i].isEnabled()) {
+        mask |= 1 << i;
+      }
+    }
+    return mask;
+  }
+
+  /** Turn on the radios in {@code mask} that are off. Returns the mask of radios turned on. */
+  public int enable(int mask) {
+    return setEnabled(mask, true);
+  }
+
+  /** Turn off the radios in {@code mask} that are on. Returns the mask of radios turned off. */
+  public int disable(int mask) {
+    return setEnabled(mask, false);
+  }
+
+  private int setEnabled(int mask, boolean enabled) {
+    int changed = 0;
+    for (int i = 0; i < radios.length; i++) {
+      int bit = 1 << i;
+      Radio radio = radios[i];
+      if ((mask & bit) == 0 || !radio.isAvailable() || radio.isEnabled() == enabled) {
+        continue;
+      }
+      radio.setEnabled(enabled);
+      changed |= bit;
+    }
+    return changed;
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.radio;
+
+import android.net.wifi.WifiManager;
+
+public final class WifiRadio implements Radio {
+  private final WifiManager wifiManager;
+
+  public WifiRadio(WifiManager wifiManager) {
+    this.wifiManager = wifiManager;
+  }
+
+  @Override public boolean isAvailable() {
+    return wifiManager != null;
+  }
+
+  @Override public boolean isEnabled() {
+    return wifiManager.isWifiEnabled();
+  }
+
+  @Override public void setEnabled(boolean enabled) {
+    wifiManager.setWifiEnabled(enabled);
+  }
+}
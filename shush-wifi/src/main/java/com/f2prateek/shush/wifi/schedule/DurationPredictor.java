@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.schedule;
+
+/**
+ * Suggests how long to keep Wi-Fi off based on what was chosen before at the same hour of the
+ * day. Each hour keeps a small counter per slider step; the suggestion is the step chosen most
+ * often at that hour.
+ * <p>
+ * Counters are capped at {@link #MAX_COUNT}. When one reaches the cap, every counter for that
+ * hour is halved, so older choices fade and a changed habit takes over after a few weeks.
+ * Recording and suggesting are both constant time. Safe to use from any thread.
+ */
+public final class DurationPredictor {
+  public static final int HOURS = 24;
+  /** Slider steps of 15 minutes, from 15 minutes thru 12 hours. */
+  public static final int BUCKETS = 48;
+  public static final int MINUTES_PER_BUCKET = 15;
+  static final int MAX_COUNT = 31;
+
+  private final byte[] counts = new byte[HOURS * BUCKETS];
+  /** The most chosen bucket of each hour. Only meaningful when its count is non zero. */
+  private final byte[] best = new byte[HOURS];
+
+  /** Remember that {@code minutes} was chosen during {@code hourOfDay}. */
+  public synchronized void record(int hourOfDay, int minutes) {
+    int row = hourOfDay * BUCKETS;
+    int bucket = bucket(minutes);
+    int count = ++counts[row + bucket];
+    if (count == MAX_COUNT) {
+      for (int i = row; i < row + BUCKETS; i++) {
+        counts[i] >>= 1;
+      }
+    }
+    // Halving keeps the order of the counts, so the best bucket only changes if this one passed
+    // it.
+    if (counts[row + bucket] >= counts[row + best[hourOfDay]]) {
+      best[hourOfDay] = (byte) bucket;
+    }
+  }
+
+  /** Returns the suggested minutes for {@code hourOfDay}, or -1 if nothing has been recorded. */
+  public synchronized int suggestMinutes(int hourOfDay) {
+    int bucket = best[hourOfDay];
+    if (counts[hourOfDay * BUCKETS + bucket] == 0) {
+      return -1;
+    }
+    return (bucket + 1) * MINUTES_PER_BUCKET;
+  }
+
+  /** Returns the counters as a short printable string, to be read by {@link #decode}. */
+  public synchronized String encode() {
+    char[] chars = new char[counts.length];
+    for (int i = 0; i < counts.length; i++) {
+      chars[i] = (char) ('0' + counts[i]);
+    }
+    return new String(chars);
+  }
+
+  /** Returns a predictor for counters from {@link #encode}, or an empty one if they're unusable. */
+  public static DurationPredictor decode(String encoded) {
+    DurationPredictor predictor = new DurationPredictor();
+    if (encoded == null || encoded.length() != predictor.counts.length) {
+      return predictor;
+    }
+    for (int i = 0; i < encoded.length(); i++) {
+      int count = encoded.charAt(i) - '0';
+      if (count < 0 || count >= MAX_COUNT) {
+        return new DurationPredictor();
+      }
+      predictor.counts[i] = (byte) count;
+    }
+    for (int hour = 0; hour < HOURS; hour++) {
+      int row = hour * BUCKETS;
+      for (int bucket = 0; bucket < BUCKETS; bucket++) {
+        if (predictor.counts[row + bucket] > predictor.counts[row + predictor.best[hour]]) {
+          predictor.best[hour] = (byte) bucket;
+        }
+      }
+    }
+    return predictor;
+  }
+
+  private static int bucket(int minutes) {
+    int bucket = (minutes + MINUTES_PER_BUCKET / 2) / MINUTES_PER_BUCKET - 1;
+    return Math.max(0, Math.min(BUCKETS - 1, bucket));
+  }
+}
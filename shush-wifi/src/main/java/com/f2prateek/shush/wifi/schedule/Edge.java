@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.schedule;
+
+/**
+ * The next time the radio should change state, as computed by {@link ScheduleEngine}.
+ */
+public final class Edge {
+  /** When the change is due, in milliseconds since the epoch. */
+  public final long timeMillis;
+  /** True if the radio should be turned off at this edge; false to turn it back on. */
+  public final boolean turnsOff;
+
+  public Edge(long timeMillis, boolean turnsOff) {
+    this.timeMillis = timeMillis;
+    this.turnsOff = turnsOff;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Edge)) {
+      return false;
+    }
+    Edge other = (Edge) o;
+    return timeMillis == other.timeMillis && turnsOff == other.turnsOff;
+  }
+
+  @Override public int hashCode() {
+    return 31 * (int) (timeMillis ^ (timeMillis >>> 32)) + (turnsOff ? 1 : 0);
+  }
+
+  @Override public String toString() {
+    return "Edge{timeMillis=" + timeMillis + ", turnsOff=" + turnsOff + '}';
+  }
+}
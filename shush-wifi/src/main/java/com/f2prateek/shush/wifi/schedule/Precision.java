@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.schedule;
+
+/** How precisely the alarm to turn the radios back on is delivered. */
+public final class Precision {
+  /** Wake the device at exactly the requested time. */
+  public static final int EXACT = 0;
+  /** Wake the device within a tolerance after the requested time, sharing an existing wakeup. */
+  public static final int BATCHED = 1;
+  /** Don't wake the device; turn on with the first wakeup after the requested time. */
+  public static final int NEXT_WAKE = 2;
+
+  private Precision() {
+    // No instances.
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.schedule;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Sets and cancels the alarm that turns the radios back on, keeping the {@link ScheduleJournal}
+ * in step with it. Each request runs as a single task on a serial executor, so requests take
+ * effect in the order they were made: a reset made after a schedule always undoes it, and the
+ * journal always describes the alarm that's set.
+ * <p>
+ * Plain Java, so it can be exercised on the JVM.
+ */
+public final class RestoreScheduler {
+  /** The platform alarm. Only called on the executor. */
+  public interface Alarm {
+    void set(ScheduleJournal.Entry entry);
+
+    void cancel();
+  }
+
+  /** A request to turn the radios back on. Only called on the executor. */
+  public interface Request {
+    /** Returns what to restore, and when. */
+    ScheduleJournal.Entry prepare();
+
+    /** The alarm for {@code entry} is set. */
+    void onScheduled(ScheduleJournal.Entry entry);
+  }
+
+  private final Executor executor;
+  private final ScheduleJournal journal;
+  private final Alarm alarm;
+
+  public RestoreScheduler(Executor executor, ScheduleJournal journal, Alarm alarm) {
+    this.executor = executor;
+    this.journal = journal;
+    this.alarm = alarm;
+  }
+
+  public void schedule(final Request request) {
+    executor.execute(new Runnable() {
+      @Override public void run() {
+        ScheduleJournal.Entry entry = request.prepare();
+        // Journal first, so the restore isn't lost if we die before the alarm is set.
+        journal.write(entry);
+        alarm.set(entry);
+        request.onScheduled(entry);
+      }
+    });
+  }
+
+  /** Cancel the alarm and forget the entry, then run {@code afterwards}. */
+  public void reset(final Runnable afterwards) {
+    executor.execute(new Runnable() {
+      @Override public void run() {
+        alarm.cancel();
+        journal.clear();
+        afterwards.run();
+      }
+    });
+  }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.schedule;
+
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * Answers when the radio should next be turned off or on, given any number of recurring weekly
+ * quiet windows (like "23:00 to 07:00 on weekdays") and one-off snoozes.
+ * <p>
+ * Windows are kept in flat primitive arrays. The first query after a change merges them into a
+ * sorted index of edges: minutes of the week for recurring windows, and instants for snoozes.
+ * Each later query is a binary search, so {@link com.f2prateek.shush.wifi.QuietHoursScheduler}
+ * only ever registers the nearest edge with the platform, however many windows there are.
+ * <p>
+ * Plain Java, so it can be exercised on the JVM. Not thread safe.
+ */
+public final class ScheduleEngine {
+  public static final int MINUTES_PER_DAY = 24 * 60;
+  public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+  private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+  private static final long MILLIS_PER_WEEK = MINUTES_PER_WEEK * MILLIS_PER_MINUTE;
+  /** 1970-01-01 was a Thursday. */
+  private static final int EPOCH_MINUTE_OF_WEEK = 4 * MINUTES_PER_DAY;
+
+  private final TimeZone timeZone;
+
+  /** Recurring windows as [start, end) minutes of the week; ends may run past the week. */
+  private int[] weeklyStarts = new int[8];
+  private int[] weeklyEnds = new int[8];
+  private int weeklyCount;
+
+  /** One-off windows as [start, end) instants. */
+  private long[] snoozeStarts = new long[4];
+  private long[] snoozeEnds = new long[4];
+  private int snoozeCount;
+
+  private boolean dirty;
+  /**
+   * Sorted edges of the union of weekly windows, encoded as {@code minuteOfWeek * 2}, plus one if
+   * the edge turns the radio on.
+   */
+  private int[] weeklyEdges = new int[0];
+  /** True if the weekly windows cover the entire week, and so have no edges. */
+  private boolean alwaysOff;
+  /** Sorted, disjoint snoozes flattened into {@code start0, end0, start1, end1...}. */
+  private long[] snoozeEdges = new long[0];
+
+  public ScheduleEngine(TimeZone timeZone) {
+    this.timeZone = timeZone;
+  }
+
+  /**
+   * Add a window that recurs each week on the given days, where bit {@code n} of
+   * {@code daysOfWeek} selects {@code Calendar.SUNDAY + n}. A window that ends at or before it
+   * starts runs past midnight into the following day.
+   */
+  public void addWeekly(int daysOfWeek, int startMinuteOfDay, int endMinuteOfDay) {
+    if (startMinuteOfDay < 0 || startMinuteOfDay >= MINUTES_PER_DAY || endMinuteOfDay < 0
+        || endMinuteOfDay >= MINUTES_PER_DAY) {
+      throw new IllegalArgumentException("minutes out of range");
+    }
+    int length = endMinuteOfDay - startMinuteOfDay;
+    if (length <= 0) {
+      length += MINUTES_PER_DAY;
+    }
+    for (int day = 0; day < 7; day++) {
+      if ((daysOfWeek & (1 << day)) != 0) {
+        int start = day * MINUTES_PER_DAY + startMinuteOfDay;
+        addWeekly(start, start + length);
+      }
+    }
+  }
+
+  private void addWeekly(int startMinuteOfWeek, int endMinuteOfWeek) {
+    if (weeklyCount == weeklyStarts.length) {
+      weeklyStarts = Arrays.copyOf(weeklyStarts, weeklyCount * 2);
+      weeklyEnds = Arrays.copyOf(weeklyEnds, weeklyCount * 2);
+    }
+    weeklyStarts[weeklyCount] = startMinuteOfWeek;
+    weeklyEnds[weeklyCount] = endMinuteOfWeek;
+    weeklyCount++;
+    dirty = true;
+  }
+
+  /** Returns how many weekly windows there are, counting one for each day a window recurs on. */
+  public int weeklyCount() {
+    return weeklyCount;
+  }
+
+  /** Returns the minute of the week the {@code index}th weekly window starts. */
+  public int weeklyStart(int index) {
+    return weeklyStarts[index];
+  }
+
+  /**
+   * Returns the minute of the week the {@code index}th weekly window ends, which is past the end
+   * of the week if it runs into the next one.
+   */
+  public int weeklyEnd(int index) {
+    return weeklyEnds[index];
+  }
+
+  /** Add a one-off window from {@code startMillis} until {@code endMillis}. */
+  public void addSnooze(long startMillis, long endMillis) {
+    if (endMillis <= startMillis) {
+      throw new IllegalArgumentException("snooze must end after it starts");
+    }
+    if (snoozeCount == snoozeStarts.length) {
+      snoozeStarts = Arrays.copyOf(snoozeStarts, snoozeCount * 2);
+      snoozeEnds = Arrays.copyOf(snoozeEnds, snoozeCount * 2);
+    }
+    snoozeStarts[snoozeCount] = startMillis;
+    snoozeEnds[snoozeCount] = endMillis;
+    snoozeCount++;
+    dirty = true;
+  }
+
+  public void clear() {
+    weeklyCount = 0;
+    snoozeCount = 0;
+    dirty = true;
+  }
+
+  /** Returns the weekly windows in a form {@link #decode} can read. Snoozes aren't included. */
+  public String encode() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < weeklyCount; i++) {
+      if (i > 0) {
+        builder.append(',');
+      }
+      builder.append(weeklyStarts[i]).append('-').append(weeklyEnds[i]);
+    }
+    return builder.toString();
+  }
+
+  /** Returns an engine with the weekly windows in {@code encoded}, or none if it's malformed. */
+  public static ScheduleEngine decode(String encoded, TimeZone timeZone) {
+    ScheduleEngine engine = new ScheduleEngine(timeZone);
+    if (encoded == null || encoded.length() == 0) {
+      return engine;
+    }
+    try {
+      for (String window : encoded.split(",", -1)) {
+        int dash = window.indexOf('-');
+        int start = Integer.parseInt(window.substring(0, dash));
+        int end = Integer.parseInt(window.substring(dash + 1));
+        if (start < 0 || start >= MINUTES_PER_WEEK || end <= start
+            || end > start + MINUTES_PER_DAY) {
+          return new ScheduleEngine(timeZone);
+        }
+        engine.addWeekly(start, end);
+      }
+    } catch (NumberFormatException e) {
+      return new ScheduleEngine(timeZone);
+    } catch (StringIndexOutOfBoundsException e) {
+      return new ScheduleEngine(timeZone);
+    }
+    return engine;
+  }
+
+  /** Returns true if the radio should be off at {@code timeMillis}. */
+  public boolean isOff(long timeMillis) {
+    index();
+    return isWeeklyOff(timeMillis) || isSnoozed(timeMillis);
+  }
+
+  /**
+   * Returns the first change after {@code nowMillis}, or null if the radio should stay as it is
+   * forever.
+   */
+  public Edge nextEdge(long nowMillis) {
+    index();
+    boolean off = isOff(nowMillis);
+    long time = nowMillis;
+    // Edges of one kind of window may fall inside the other kind, and the clock may change without
+    // changing anything; skip those. Nothing changes inside a snooze, so skip straight to its end.
+    // Outside snoozes, weekly edges change the state at least once a week unless the windows only
+    // start or end in minutes the clock skips, so give up after two.
+    long giveUpMillis = nowMillis + 2 * MILLIS_PER_WEEK;
+    while (time < giveUpMillis) {
+      boolean snoozed = isSnoozed(time);
+      long candidate =
+          snoozed ? nextSnoozeEdge(time) : Math.min(nextWeeklyEdge(time), nextSnoozeEdge(time));
+      if (candidate == Long.MAX_VALUE) {
+        return null;
+      }
+      if (isOff(candidate) != off) {
+        return new Edge(candidate, !off);
+      }
+      if (snoozed) {
+        giveUpMillis = candidate + 2 * MILLIS_PER_WEEK;
+      }
+      time = candidate;
+    }
+    return null;
+  }
+
+  private void index() {
+    if (!dirty) {
+      return;
+    }
+    dirty = false;
+    indexWeekly();
+    indexSnoozes();
+  }
+
+  private void indexWeekly() {
+    // Unroll windows that run past the end of the week into two linear pieces, then merge.
+    long[] pieces = new long[weeklyCount * 2];
+    int pieceCount = 0;
+    for (int i = 0; i < weeklyCount; i++) {
+      int start = weeklyStarts[i];
+      int end = weeklyEnds[i];
+      if (end > MINUTES_PER_WEEK) {
+        pieces[pieceCount++] = pack(start, MINUTES_PER_WEEK);
+        pieces[pieceCount++] = pack(0, end - MINUTES_PER_WEEK);
+      } else {
+        pieces[pieceCount++] = pack(start, end);
+      }
+    }
+    Arrays.sort(pieces, 0, pieceCount);
+
+    int[] starts = new int[pieceCount];
+    int[] ends = new int[pieceCount];
+    int merged = 0;
+    for (int i = 0; i < pieceCount; i++) {
+      int start = (int) (pieces[i] >>> 32);
+      int end = (int) pieces[i];
+      if (merged > 0 && start <= ends[merged - 1]) {
+        ends[merged - 1] = Math.max(ends[merged - 1], end);
+      } else {
+        starts[merged] = start;
+        ends[merged] = end;
+        merged++;
+      }
+    }
+
+    alwaysOff = merged == 1 && starts[0] == 0 && ends[0] == MINUTES_PER_WEEK;
+    if (alwaysOff || merged == 0) {
+      weeklyEdges = new int[0];
+      return;
+    }
+    // A window touching both ends of the week continues across Saturday midnight; no edge there.
+    boolean wraps = starts[0] == 0 && ends[merged - 1] == MINUTES_PER_WEEK;
+    int[] edges = new int[merged * 2];
+    int edgeCount = 0;
+    for (int i = 0; i < merged; i++) {
+      if (!(wraps && i == 0)) {
+        edges[edgeCount++] = starts[i] * 2; // turns off
+      }
+      if (!(wraps && i == merged - 1)) {
+        edges[edgeCount++] = ends[i] * 2 + 1; // turns on
+      }
+    }
+    weeklyEdges = Arrays.copyOf(edges, edgeCount);
+    Arrays.sort(weeklyEdges);
+  }
+
+  private void indexSnoozes() {
+    long[] starts = Arrays.copyOf(snoozeStarts, snoozeCount);
+    long[] ends = Arrays.copyOf(snoozeEnds, snoozeCount);
+    // Snoozes are few, so an insertion sort by start time is plenty.
+    for (int i = 1; i < snoozeCount; i++) {
+      long start = starts[i];
+      long end = ends[i];
+      int j = i - 1;
+      while (j >= 0 && starts[j] > start) {
+        starts[j + 1] = starts[j];
+        ends[j + 1] = ends[j];
+        j--;
+      }
+      starts[j + 1] = start;
+      ends[j + 1] = end;
+    }
+    long[] edges = new long[snoozeCount * 2];
+    int edgeCount = 0;
+    for (int i = 0; i < snoozeCount; i++) {
+      if (edgeCount > 0 && starts[i] <= edges[edgeCount - 1]) {
+        edges[edgeCount - 1] = Math.max(edges[edgeCount - 1], ends[i]);
+      } else {
+        edges[edgeCount++] = starts[i];
+        edges[edgeCount++] = ends[i];
+      }
+    }
+    snoozeEdges = Arrays.copyOf(edges, edgeCount);
+  }
+
+  private boolean isWeeklyOff(long timeMillis) {
+    if (alwaysOff) {
+      return true;
+    }
+    if (weeklyEdges.length == 0) {
+      return false;
+    }
+    int minute = minuteOfWeekAt(timeMillis);
+    // The last edge at or before this minute, wrapping around to the end of the week.
+    int index = upperBound(weeklyEdges, minute * 2 + 1) - 1;
+    int edge = weeklyEdges[index >= 0 ? index : weeklyEdges.length - 1];
+    return (edge & 1) == 0;
+  }
+
+  private boolean isSnoozed(long timeMillis) {
+    // Inside a snooze if an odd number of edges are at or before this instant.
+    return (upperBound(snoozeEdges, timeMillis) & 1) == 1;
+  }
+
+  /**
+   * Returns the instant the local clock next reaches a weekly edge, or the instant its offset next
+   * changes if that comes first. The local clock skips or repeats minutes when the offset changes,
+   * so the caller must check the state there too.
+   */
+  private long nextWeeklyEdge(long timeMillis) {
+    if (weeklyEdges.length == 0) {
+      return Long.MAX_VALUE;
+    }
+    int offset = timeZone.getOffset(timeMillis);
+    long localMinute = floorDiv(timeMillis + offset, MILLIS_PER_MINUTE);
+    int minute = minuteOfWeek(localMinute);
+    int index = upperBound(weeklyEdges, minute * 2 + 1);
+    int weeks = 0;
+    if (index == weeklyEdges.length) {
+      index = 0;
+      weeks = 1;
+    }
+    int edgeMinute = weeklyEdges[index] / 2;
+    long edgeMillis = (localMinute - minute + edgeMinute + weeks * MINUTES_PER_WEEK)
+        * MILLIS_PER_MINUTE - offset;
+    if (timeZone.getOffset(edgeMillis) == offset) {
+      // Offsets change months apart, so there's been no change in this week or less.
+      return edgeMillis;
+    }
+    // Find the first instant with the new offset.
+    long low = timeMillis;
+    long high = edgeMillis;
+    while (high - low > 1) {
+      long mid = (low + high) >>> 1;
+      if (timeZone.getOffset(mid) == offset) {
+        low = mid;
+      } else {
+        high = mid;
+      }
+    }
+    return high;
+  }
+
+  private long nextSnoozeEdge(long timeMillis) {
+    int index = upperBound(snoozeEdges, timeMillis);
+    return index < snoozeEdges.length ? snoozeEdges[index] : Long.MAX_VALUE;
+  }
+
+  private int minuteOfWeekAt(long timeMillis) {
+    return minuteOfWeek(floorDiv(timeMillis + timeZone.getOffset(timeMillis), MILLIS_PER_MINUTE));
+  }
+
+  private static int minuteOfWeek(long localMinute) {
+    return (int) ((localMinute + EPOCH_MINUTE_OF_WEEK) % MINUTES_PER_WEEK + MINUTES_PER_WEEK)
+        % MINUTES_PER_WEEK;
+  }
+
+  private static long floorDiv(long dividend, long divisor) {
+    long quotient = dividend / divisor;
+    return dividend % divisor < 0 ? quotient - 1 : quotient;
+  }
+
+  private static long pack(int start, int end) {
+    return ((long) start << 32) | end;
+  }
+
+  /** Returns the index of the first element greater than {@code key}. */
+  private static int upperBound(int[] array, int key) {
+    int low = 0;
+    int high = array.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (array[mid] <= key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /** Returns the index of the first element greater than {@code key}. */
+  private static int upperBound(long[] array, long key) {
+    int low = 0;
+    int high = array.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (array[mid] <= key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.schedule;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers the pending restore on disk, so it survives a reboot or the process dying; alarms
+ * don't survive a reboot. There's at most one entry.
+ * <p>
+ * An entry is written to a temporary file, synced, and renamed over the journal, so a crash while
+ * writing leaves the previous entry in place. Entries carry a checksum and any entry that fails
+ * it is ignored.
+ */
+public final class ScheduleJournal {
+  /** The journal's name in the app's files directory. */
+  public static final String FILE_NAME = "schedule.journal";
+
+  private static final int MAGIC = 0x53484a4e; // "SHJN"
+  private static final int VERSION = 1;
+  private static final int SIZE = 4 + 4 + 8 + 4 + 8 + 4; // fields, then the checksum
+
+  /** A restore of {@link #radios} at {@link #onTime}, scheduled with the given precision. */
+  public static final class Entry {
+    public final long onTime;
+    public final int precision;
+    public final long toleranceMillis;
+    public final int radios;
+
+    public Entry(long onTime, int precision, long toleranceMillis, int radios) {
+      this.onTime = onTime;
+      this.precision = precision;
+      this.toleranceMillis = toleranceMillis;
+      this.radios = radios;
+    }
+  }
+
+  private final File file;
+  private final File temp;
+
+  public ScheduleJournal(File file) {
+    this.file = file;
+    this.temp = new File(file.getPath() + ".tmp");
+  }
+
+  /** Replace the journal's entry. Returns false if it couldn't be saved. */
+  public synchronized boolean write(Entry entry) {
+    ByteBuffer buffer = ByteBuffer.allocate(SIZE + 8);
+    buffer.putInt(MAGIC)
+        .putInt(VERSION)
+        .putLong(entry.onTime)
+        .putInt(entry.precision)
+        .putLong(entry.toleranceMillis)
+        .putInt(entry.radios);
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, buffer.position());
+    buffer.putLong(crc.getValue());
+
+    try {
+      FileOutputStream out = new FileOutputStream(temp);
+      try {
+        out.write(buffer.array(), 0, buffer.position());
+        out.getFD().sync();
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      temp.delete();
+      return false;
+    }
+    return temp.renameTo(file);
+  }
+
+  /** Returns the journal's entry, or null if there's none or it's damaged. */
+  public synchronized Entry read() {
+    byte[] bytes = new byte[SIZE + 8];
+    try {
+      DataInputStream in = new DataInputStream(new FileInputStream(file));
+      try {
+        in.readFully(bytes);
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      return null; // missing or truncated
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, SIZE);
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+        || buffer.getLong(SIZE) != crc.getValue()) {
+      return null;
+    }
+    return new Entry(buffer.getLong(), buffer.getInt(), buffer.getLong(), buffer.getInt());
+  }
+
+  /** Forget the entry; the restore happened or was abandoned. */
+  public synchronized void clear() {
+    file.delete();
+    temp.delete();
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AngleResolverTest {
+  /** Offsets up to this many pixels from the center, well past the largest slider. */
+  private static final int RADIUS = 1200;
+
+  @Test public void matchesFloatingPointOnEveryPixel() {
+    int[] startAngles = {0, 90, 277};
+    for (int startAngle : startAngles) {
+      for (int dx = -RADIUS; dx <= RADIUS; dx++) {
+        for (int dy = -RADIUS; dy <= RADIUS; dy++) {
+          if (dx == 0 && dy == 0) {
+            continue; // the center has no angle
+          }
+          int expected = AngleResolver.sweepMinutes(AngleResolver.pointToAngle(dx, dy, 0, 0),
+              startAngle);
+          int actual = AngleResolver.minutesAt(dx, dy, startAngle);
+          if (actual != expected) {
+            assertEquals("dx=" + dx + " dy=" + dy + " start=" + startAngle, expected, actual);
+          }
+        }
+      }
+    }
+  }
+
+  @Test public void quarterHours() {
+    // 3 o'clock is angle 0, so a slider starting at 12 sweeps 90 degrees or 180 minutes to it.
+    assertEquals(180, AngleResolver.minutesAt(100, 0, 270));
+    assertEquals(360, AngleResolver.minutesAt(0, 100, 270));
+    assertEquals(540, AngleResolver.minutesAt(-100, 0, 270));
+    assertEquals(720, AngleResolver.minutesAt(0, -100, 270));
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void centerHasNoAngle() {
+    AngleResolver.minutesAt(0, 0, 0);
+  }
+}
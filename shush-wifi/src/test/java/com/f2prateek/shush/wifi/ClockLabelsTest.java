@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class ClockLabelsTest {
+  private ClockLabels labels;
+
+  @Before public void setUp() {
+    labels = new ClockLabels("minutes", "hour", "hours");
+    SimpleDateFormat timeFormat = new SimpleDateFormat("h:mm a", Locale.US);
+    timeFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    labels.setStart(timeFormat, 22 * 60 * 60 * 1000L); // 10:00 PM
+  }
+
+  @Test public void everyStepHasItsLabels() {
+    for (int minutes = 0; minutes <= 720; minutes += 15) {
+      int step = ClockLabels.step(minutes);
+      assertEquals(minutes / 15, step);
+      assertEquals(ClockMath.durationText(minutes), labels.duration(step));
+    }
+    assertEquals("2\u00BD", labels.duration(ClockLabels.step(150)));
+    assertEquals("10:00 PM", labels.onAt(ClockLabels.step(0)));
+    assertEquals("12:30 AM", labels.onAt(ClockLabels.step(150)));
+    assertEquals("10:00 AM", labels.onAt(ClockLabels.step(720)));
+  }
+
+  @Test public void unitsFollowTheDuration() {
+    assertEquals("minutes", labels.units(45));
+    assertEquals("hour", labels.units(60));
+    assertEquals("hours", labels.units(75));
+  }
+
+  @Test public void durationsOffTheStepsAreNotInTheTable() {
+    assertEquals(-1, ClockLabels.step(-15));
+    assertEquals(-1, ClockLabels.step(7));
+    assertEquals(-1, ClockLabels.step(735));
+  }
+
+  /** Looks up every label the way {@code ClockSlider.onDraw} does, many frames over. */
+  @Test public void drawingAllocatesNothing() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+    long id = Thread.currentThread().getId();
+
+    drawFrames(1000); // warm up
+
+    long before = threads.getThreadAllocatedBytes(id);
+    long overhead = threads.getThreadAllocatedBytes(id) - before; // of measuring itself
+    before = threads.getThreadAllocatedBytes(id);
+    int length = drawFrames(10000);
+    long allocated = threads.getThreadAllocatedBytes(id) - before - overhead;
+
+    assertEquals(0, allocated);
+    assertEquals(true, length > 0);
+  }
+
+  private int drawFrames(int frames) {
+    int length = 0;
+    for (int frame = 0; frame < frames; frame++) {
+      int minutes = (frame * 15) % 735;
+      int step = ClockLabels.step(minutes);
+      length += labels.duration(step).length();
+      length += labels.units(minutes).length();
+      length += labels.onAt(step).length();
+    }
+    return length;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.f2prateek.shush.wifi.WifiStateCoalescer.FLAPPING;
+import static com.f2prateek.shush.wifi.WifiStateCoalescer.NONE;
+import static com.f2prateek.shush.wifi.WifiStateCoalescer.TURNED_OFF;
+import static com.f2prateek.shush.wifi.WifiStateCoalescer.TURNED_ON;
+import static com.f2prateek.shush.wifi.WifiStateCoalescer.WIFI_STATE_DISABLED;
+import static com.f2prateek.shush.wifi.WifiStateCoalescer.WIFI_STATE_DISABLING;
+import static com.f2prateek.shush.wifi.WifiStateCoalescer.WIFI_STATE_ENABLED;
+import static com.f2prateek.shush.wifi.WifiStateCoalescer.WIFI_STATE_ENABLING;
+import static org.junit.Assert.assertEquals;
+
+public class WifiStateCoalescerTest {
+  private static final long FLAP_WINDOW_MILLIS = 1000;
+  private static final int WIFI_STATE_UNKNOWN = 4;
+
+  private WifiStateCoalescer coalescer;
+
+  @Before public void setUp() {
+    coalescer = new WifiStateCoalescer(FLAP_WINDOW_MILLIS);
+  }
+
+  @Test public void actsOncePerToggle() {
+    assertEquals(TURNED_OFF, coalescer.onStateChanged(WIFI_STATE_DISABLING, 0));
+    assertEquals(NONE, coalescer.onStateChanged(WIFI_STATE_DISABLED, 100));
+    assertEquals(TURNED_ON, coalescer.onStateChanged(WIFI_STATE_ENABLING, 5000));
+    assertEquals(NONE, coalescer.onStateChanged(WIFI_STATE_ENABLED, 5100));
+
+    assertEquals(4, coalescer.broadcastsReceived());
+    assertEquals(2, coalescer.actionsTaken());
+  }
+
+  @Test public void settledStateIsOnlyActedOnOnce() {
+    assertEquals(TURNED_ON, coalescer.onStateChanged(WIFI_STATE_ENABLED, 0));
+    assertEquals(NONE, coalescer.onStateChanged(WIFI_STATE_ENABLED, 5000));
+    assertEquals(NONE, coalescer.onStateChanged(WIFI_STATE_ENABLING, 10000));
+    assertEquals(1, coalescer.actionsTaken());
+  }
+
+  @Test public void firstBroadcastIsAnEdgeWhateverTheTime() {
+    // Nothing has settled yet, so there's no earlier edge to flap against.
+    assertEquals(TURNED_OFF, coalescer.onStateChanged(WIFI_STATE_DISABLED, 0));
+  }
+
+  @Test public void edgesWithinTheFlapWindowWaitToSettle() {
+    assertEquals(TURNED_OFF, coalescer.onStateChanged(WIFI_STATE_DISABLED, 0));
+    assertEquals(FLAPPING, coalescer.onStateChanged(WIFI_STATE_ENABLED, 400));
+    assertEquals(FLAPPING, coalescer.onStateChanged(WIFI_STATE_DISABLED, 800));
+    // The window restarts with each edge, so this is still a flap.
+    assertEquals(FLAPPING, coalescer.onStateChanged(WIFI_STATE_ENABLED, 1700));
+    // Too soon; the last edge will settle itself.
+    assertEquals(NONE, coalescer.settle(WIFI_STATE_ENABLED, 1800));
+    assertEquals(TURNED_ON, coalescer.settle(WIFI_STATE_ENABLED, 2700));
+    // Once it's been quiet for the window, edges count again.
+    assertEquals(TURNED_OFF, coalescer.onStateChanged(WIFI_STATE_DISABLING, 3700));
+
+    assertEquals(5, coalescer.broadcastsReceived());
+    assertEquals(3, coalescer.actionsTaken());
+  }
+
+  @Test public void lastEdgeOfAFlapIsActedOn() {
+    assertEquals(TURNED_ON, coalescer.onStateChanged(WIFI_STATE_ENABLED, 0));
+    assertEquals(FLAPPING, coalescer.onStateChanged(WIFI_STATE_DISABLING, 300));
+    assertEquals(NONE, coalescer.onStateChanged(WIFI_STATE_DISABLED, 350));
+    assertEquals(TURNED_OFF, coalescer.settle(WIFI_STATE_DISABLED, 300 + FLAP_WINDOW_MILLIS));
+    // Only once, however often it's asked.
+    assertEquals(NONE, coalescer.settle(WIFI_STATE_DISABLED, 5000));
+    assertEquals(2, coalescer.actionsTaken());
+  }
+
+  @Test public void flapBackToTheActedStateDoesNothing() {
+    assertEquals(TURNED_OFF, coalescer.onStateChanged(WIFI_STATE_DISABLED, 0));
+    assertEquals(FLAPPING, coalescer.onStateChanged(WIFI_STATE_ENABLED, 200));
+    assertEquals(FLAPPING, coalescer.onStateChanged(WIFI_STATE_DISABLED, 400));
+    assertEquals(NONE, coalescer.settle(WIFI_STATE_DISABLED, 1400));
+    assertEquals(1, coalescer.actionsTaken());
+  }
+
+  @Test public void settleGoesByTheRadioRatherThanTheLastBroadcast() {
+    assertEquals(TURNED_OFF, coalescer.onStateChanged(WIFI_STATE_DISABLED, 0));
+    assertEquals(FLAPPING, coalescer.onStateChanged(WIFI_STATE_ENABLED, 200));
+    // The broadcast for turning off again never arrived.
+    assertEquals(NONE, coalescer.settle(WIFI_STATE_DISABLED, 1200));
+    // That counted as an edge, so this is a flap. An unknown state falls back to the broadcast.
+    assertEquals(FLAPPING, coalescer.onStateChanged(WIFI_STATE_ENABLED, 1500));
+    assertEquals(TURNED_ON, coalescer.settle(WIFI_STATE_UNKNOWN, 2500));
+  }
+
+  @Test public void edgeAtTheEndOfTheWindowIsActedOn() {
+    assertEquals(TURNED_OFF, coalescer.onStateChanged(WIFI_STATE_DISABLED, 0));
+    assertEquals(TURNED_ON, coalescer.onStateChanged(WIFI_STATE_ENABLED, FLAP_WINDOW_MILLIS));
+  }
+
+  @Test public void settlesAtTheEndOfTheWindow() {
+    assertEquals(TURNED_OFF, coalescer.onStateChanged(WIFI_STATE_DISABLED, 0));
+    assertEquals(FLAPPING, coalescer.onStateChanged(WIFI_STATE_ENABLED, FLAP_WINDOW_MILLIS - 1));
+    assertEquals(NONE, coalescer.settle(WIFI_STATE_ENABLED, 2 * FLAP_WINDOW_MILLIS - 2));
+    assertEquals(TURNED_ON, coalescer.settle(WIFI_STATE_ENABLED, 2 * FLAP_WINDOW_MILLIS - 1));
+  }
+
+  @Test public void unknownStatesAreCountedButIgnored() {
+    assertEquals(NONE, coalescer.onStateChanged(WIFI_STATE_UNKNOWN, 0));
+    assertEquals(NONE, coalescer.onStateChanged(-1, 0));
+    // They don't settle anything, so the first real state is still an edge.
+    assertEquals(TURNED_ON, coalescer.onStateChanged(WIFI_STATE_ENABLED, 0));
+
+    assertEquals(3, coalescer.broadcastsReceived());
+    assertEquals(1, coalescer.actionsTaken());
+  }
+}
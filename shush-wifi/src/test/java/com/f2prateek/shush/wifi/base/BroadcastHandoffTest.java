@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BroadcastHandoffTest {
+  private static final BroadcastHandoff.Result IGNORE_RESULT = new BroadcastHandoff.Result() {
+    @Override public void finish() {
+    }
+  };
+
+  private ExecutorService executor;
+
+  @Before public void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test public void returnsBeforeTheBroadcastIsHandled() throws InterruptedException {
+    final CountDownLatch handling = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch finished = new CountDownLatch(1);
+    final AtomicReference<Thread> handledOn = new AtomicReference<Thread>();
+
+    BroadcastHandoff.handOff(executor, new Runnable() {
+      @Override public void run() {
+        handledOn.set(Thread.currentThread());
+        handling.countDown();
+        await(release);
+      }
+    }, new BroadcastHandoff.Result() {
+      @Override public void finish() {
+        finished.countDown();
+      }
+    });
+
+    // The handler is blocked, yet we're back.
+    assertTrue(handling.await(5, TimeUnit.SECONDS));
+    assertNotSame(Thread.currentThread(), handledOn.get());
+    assertEquals(1, finished.getCount());
+
+    release.countDown();
+    assertTrue(finished.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test public void finishesEvenIfHandlingThrows() {
+    final AtomicInteger finished = new AtomicInteger();
+    Executor direct = new Executor() {
+      @Override public void execute(Runnable command) {
+        command.run();
+      }
+    };
+    try {
+      BroadcastHandoff.handOff(direct, new Runnable() {
+        @Override public void run() {
+          throw new IllegalStateException("boom");
+        }
+      }, new BroadcastHandoff.Result() {
+        @Override public void finish() {
+          finished.incrementAndGet();
+        }
+      });
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    assertEquals(1, finished.get());
+  }
+
+  @Test public void broadcastsAreHandledInOrder() throws InterruptedException {
+    final int[] handled = new int[100];
+    final AtomicInteger count = new AtomicInteger();
+    for (int i = 0; i < handled.length; i++) {
+      final int broadcast = i;
+      BroadcastHandoff.handOff(executor, new Runnable() {
+        @Override public void run() {
+          handled[count.getAndIncrement()] = broadcast;
+        }
+      }, IGNORE_RESULT);
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+    for (int i = 0; i < handled.length; i++) {
+      assertEquals(i, handled[i]);
+    }
+  }
+
+  @Test public void handlerRunsOnTheExecutorAfterHandOffReturns() {
+    final List<Runnable> queued = new ArrayList<Runnable>();
+    Executor queueing = new Executor() {
+      @Override public void execute(Runnable command) {
+        queued.add(command);
+      }
+    };
+    final List<String> events = new ArrayList<String>();
+
+    BroadcastHandoff.handOff(queueing, new Runnable() {
+      @Override public void run() {
+        events.add("handled");
+      }
+    }, new BroadcastHandoff.Result() {
+      @Override public void finish() {
+        events.add("finished");
+      }
+    });
+
+    // Nothing has run on the caller's thread; it's all been queued.
+    assertEquals(Collections.<String>emptyList(), events);
+    assertEquals(1, queued.size());
+
+    queued.get(0).run();
+    assertEquals(Arrays.asList("handled", "finished"), events);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
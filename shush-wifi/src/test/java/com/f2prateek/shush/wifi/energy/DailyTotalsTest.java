@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.energy;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DailyTotalsTest {
+  private static final long HOUR = 60 * 60 * 1000L;
+  private static final long DAY = 24 * HOUR;
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+  private static final TimeZone LOS_ANGELES = TimeZone.getTimeZone("America/Los_Angeles");
+  private static final TimeZone TOKYO = TimeZone.getTimeZone("Asia/Tokyo");
+
+  private final DailyTotals totals = new DailyTotals();
+
+  @Test public void windowWithinADayIsBookedToIt() {
+    long noon = time(UTC, 2014, Calendar.MARCH, 10, 12);
+    totals.addWindow(noon, noon + 2 * HOUR, 4000, 3, UTC);
+
+    assertEquals(2 * HOUR, totals.offMillis(noon + 3 * HOUR, 1, UTC));
+    assertEquals(8000, totals.savedMicroampHours(noon + 3 * HOUR, 1, UTC));
+    assertEquals(3, totals.batteryDropPercent(noon + 3 * HOUR, 1, UTC));
+  }
+
+  @Test public void windowIsSplitAtMidnight() {
+    long tenPm = time(UTC, 2014, Calendar.MARCH, 10, 22);
+    totals.addWindow(tenPm, tenPm + 5 * HOUR, 1000, 4, UTC);
+
+    long nextDay = tenPm + 12 * HOUR;
+    assertEquals(3 * HOUR, totals.offMillis(nextDay, 1, UTC));
+    assertEquals(3000, totals.savedMicroampHours(nextDay, 1, UTC));
+    // The battery drop goes to the day the window ended on.
+    assertEquals(4, totals.batteryDropPercent(nextDay, 1, UTC));
+    assertEquals(5 * HOUR, totals.offMillis(nextDay, 2, UTC));
+    assertEquals(4, totals.batteryDropPercent(nextDay, 2, UTC));
+  }
+
+  @Test public void windowSpanningDaysGivesEachDayItsShare() {
+    long noon = time(UTC, 2014, Calendar.MARCH, 10, 12);
+    totals.addWindow(noon, noon + 3 * DAY, 1000, 0, UTC);
+
+    long end = noon + 3 * DAY;
+    assertEquals(12 * HOUR, totals.offMillis(end, 1, UTC));
+    assertEquals(36 * HOUR, totals.offMillis(end, 2, UTC));
+    assertEquals(60 * HOUR, totals.offMillis(end, 3, UTC));
+    assertEquals(72 * HOUR, totals.offMillis(end, 4, UTC));
+  }
+
+  @Test public void splitFollowsDaylightSaving() {
+    // March 9, 2014 is 23 hours long in Los Angeles.
+    long march8Noon = time(LOS_ANGELES, 2014, Calendar.MARCH, 8, 12);
+    long march10Noon = time(LOS_ANGELES, 2014, Calendar.MARCH, 10, 12);
+    totals.addWindow(march8Noon, march10Noon, 1000, 0, LOS_ANGELES);
+
+    assertEquals(12 * HOUR, totals.offMillis(march10Noon, 1, LOS_ANGELES));
+    assertEquals(35 * HOUR, totals.offMillis(march10Noon, 2, LOS_ANGELES));
+    assertEquals(47 * HOUR, totals.offMillis(march10Noon, 3, LOS_ANGELES));
+  }
+
+  @Test public void windowsOnTheSameDayAddUp() {
+    long morning = time(UTC, 2014, Calendar.MARCH, 10, 8);
+    totals.addWindow(morning, morning + HOUR, 1000, 1, UTC);
+    totals.addWindow(morning + 4 * HOUR, morning + 6 * HOUR, 1000, 2, UTC);
+
+    assertEquals(3 * HOUR, totals.offMillis(morning + 8 * HOUR, 1, UTC));
+    assertEquals(3000, totals.savedMicroampHours(morning + 8 * HOUR, 1, UTC));
+    assertEquals(3, totals.batteryDropPercent(morning + 8 * HOUR, 1, UTC));
+  }
+
+  @Test public void dayReusesTheSlotOfTheDayAWeekBefore() {
+    long monday = time(UTC, 2014, Calendar.MARCH, 10, 8);
+    totals.addWindow(monday, monday + 4 * HOUR, 1000, 5, UTC);
+    long nextMonday = monday + DailyTotals.DAYS * DAY;
+    totals.addWindow(nextMonday, nextMonday + HOUR, 1000, 1, UTC);
+
+    // Last week's totals were replaced, not added to.
+    assertEquals(HOUR, totals.offMillis(nextMonday + 2 * HOUR, 1, UTC));
+    assertEquals(HOUR, totals.offMillis(nextMonday + 2 * HOUR, DailyTotals.DAYS, UTC));
+    assertEquals(1000, totals.savedMicroampHours(nextMonday + 2 * HOUR, 1, UTC));
+    assertEquals(1, totals.batteryDropPercent(nextMonday + 2 * HOUR, 1, UTC));
+  }
+
+  @Test public void daysOlderThanTheRangeAreLeftOut() {
+    long monday = time(UTC, 2014, Calendar.MARCH, 10, 8);
+    totals.addWindow(monday, monday + HOUR, 1000, 0, UTC);
+
+    assertEquals(HOUR, totals.offMillis(monday + 6 * DAY, DailyTotals.DAYS, UTC));
+    // Its slot hasn't been reused, but it's more than a week ago.
+    assertEquals(0, totals.offMillis(monday + DailyTotals.DAYS * DAY, DailyTotals.DAYS, UTC));
+    assertEquals(0, totals.offMillis(monday + 20 * DAY, 100, UTC));
+  }
+
+  @Test public void daysAreLocalToTheTimeZoneOfEachCall() {
+    // 20:00 to 23:00 in UTC is 05:00 to 08:00 the next day in Tokyo.
+    long eightPm = time(UTC, 2014, Calendar.MARCH, 10, 20);
+    totals.addWindow(eightPm, eightPm + 3 * HOUR, 1000, 0, TOKYO);
+
+    long tokyoEvening = eightPm + 12 * HOUR;
+    assertEquals(3 * HOUR, totals.offMillis(tokyoEvening, 1, TOKYO));
+    // That Tokyo day is March 11, which in UTC is tomorrow, so nothing is booked for today.
+    assertEquals(0, totals.offMillis(eightPm + 3 * HOUR, 1, UTC));
+  }
+
+  private static long time(TimeZone timeZone, int year, int month, int day, int hour) {
+    Calendar calendar = new GregorianCalendar(timeZone);
+    calendar.clear();
+    calendar.set(year, month, day, hour, 0);
+    return calendar.getTimeInMillis();
+  }
+}
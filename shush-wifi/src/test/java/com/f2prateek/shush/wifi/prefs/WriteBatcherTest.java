@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.prefs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WriteBatcherTest {
+  private static final long QUIET_MILLIS = 500;
+
+  private FakeTimer timer;
+  /** Each batch written to "disk", in order. */
+  private List<List<String>> disk;
+  private WriteBatcher<String> batcher;
+
+  @Before public void setUp() {
+    timer = new FakeTimer();
+    disk = new ArrayList<List<String>>();
+    batcher = new WriteBatcher<String>(QUIET_MILLIS, timer, new WriteBatcher.Sink<String>() {
+      @Override public void write(List<String> batch) {
+        disk.add(new ArrayList<String>(batch));
+      }
+    }, new Object());
+  }
+
+  @Test public void burstWhileResumedIsOneCommit() {
+    batcher.onActivityResumed();
+    for (int i = 0; i < 1000; i++) {
+      batcher.enqueue("color"); // a color wheel drag
+      timer.advance(16);
+    }
+    batcher.enqueue("minutes");
+    assertEquals(0, disk.size());
+
+    timer.advance(QUIET_MILLIS);
+    assertEquals(1, disk.size());
+    assertEquals(Arrays.asList("color", "minutes"), disk.get(0));
+    assertEquals(1, batcher.batchesWritten());
+  }
+
+  @Test public void eachWriteRestartsTheQuietPeriod() {
+    batcher.onActivityResumed();
+    batcher.enqueue("color");
+    timer.advance(QUIET_MILLIS - 1);
+    batcher.enqueue("color");
+    timer.advance(QUIET_MILLIS - 1);
+    assertEquals(0, disk.size());
+    timer.advance(1);
+    assertEquals(1, disk.size());
+  }
+
+  @Test public void pauseWritesWhatIsQueued() {
+    batcher.onActivityResumed();
+    batcher.enqueue("color");
+    batcher.enqueue("minutes");
+    assertTrue(batcher.isPending("color"));
+
+    batcher.onActivityPaused();
+    assertEquals(1, disk.size());
+    assertFalse(batcher.isPending("color"));
+
+    timer.advance(QUIET_MILLIS); // the cancelled quiet flush has nothing left to write
+    assertEquals(1, batcher.batchesWritten());
+  }
+
+  @Test public void withNoActivityResumedEveryWriteIsCommitted() {
+    batcher.enqueue("minutes"); // a receiver or the background executor
+    assertEquals(1, disk.size());
+    batcher.enqueue("duration_history");
+    assertEquals(2, disk.size());
+    assertFalse(batcher.isPending("duration_history"));
+  }
+
+  @Test public void writesAfterThePauseAreNotLeftQueued() {
+    batcher.onActivityResumed();
+    batcher.enqueue("color");
+    batcher.onActivityPaused();
+    // A background task finishing after the activity paused.
+    batcher.enqueue("minutes");
+    assertEquals(2, disk.size());
+    assertEquals(Arrays.asList("minutes"), disk.get(1));
+  }
+
+  @Test public void batchesUntilTheLastActivityPauses() {
+    batcher.onActivityResumed();
+    batcher.onActivityResumed(); // a second screen on top
+    batcher.onActivityPaused();
+    batcher.enqueue("color");
+    assertEquals(0, disk.size());
+
+    batcher.onActivityPaused();
+    assertEquals(1, disk.size());
+    batcher.enqueue("minutes");
+    assertEquals(2, disk.size());
+  }
+
+  @Test public void emptyFlushWritesNothing() {
+    batcher.flush();
+    batcher.onActivityPaused();
+    assertEquals(0, disk.size());
+    assertEquals(0, batcher.batchesWritten());
+  }
+
+  /** Runs scheduled tasks when the test advances time. */
+  static final class FakeTimer implements WriteBatcher.Timer {
+    private final List<Runnable> tasks = new ArrayList<Runnable>();
+    private final List<Long> times = new ArrayList<Long>();
+    private long now;
+
+    @Override public void schedule(Runnable task, long delayMillis) {
+      tasks.add(task);
+      times.add(now + delayMillis);
+    }
+
+    @Override public void cancel(Runnable task) {
+      for (int i = tasks.size() - 1; i >= 0; i--) {
+        if (tasks.get(i) == task) {
+          tasks.remove(i);
+          times.remove(i);
+        }
+      }
+    }
+
+    void advance(long millis) {
+      now += millis;
+      int i = 0;
+      while (i < tasks.size()) {
+        if (times.get(i) <= now) {
+          Runnable task = tasks.remove(i);
+          times.remove(i);
+          task.run();
+        } else {
+          i++;
+        }
+      }
+    }
+  }
+}
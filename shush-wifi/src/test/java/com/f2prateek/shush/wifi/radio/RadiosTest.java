@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.radio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.f2prateek.shush.wifi.radio.Radios.BLUETOOTH;
+import static com.f2prateek.shush.wifi.radio.Radios.WIFI;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RadiosTest {
+  private FakeRadio wifi;
+  private FakeRadio bluetooth;
+  private Radios radios;
+
+  @Before public void setUp() {
+    wifi = new FakeRadio(true, true);
+    bluetooth = new FakeRadio(true, true);
+    radios = new Radios(wifi, bluetooth);
+  }
+
+  @Test public void reportsWhichRadiosAreOn() {
+    assertEquals(WIFI | BLUETOOTH, radios.enabled());
+    bluetooth.enabled = false;
+    assertEquals(WIFI, radios.enabled());
+  }
+
+  @Test public void togglesEveryRadioDueInOneCall() {
+    assertEquals(WIFI | BLUETOOTH, radios.disable(WIFI | BLUETOOTH));
+    assertFalse(wifi.enabled);
+    assertFalse(bluetooth.enabled);
+
+    assertEquals(WIFI | BLUETOOTH, radios.enable(WIFI | BLUETOOTH));
+    assertTrue(wifi.enabled);
+    assertTrue(bluetooth.enabled);
+    assertEquals(2, wifi.toggles);
+    assertEquals(2, bluetooth.toggles);
+  }
+
+  @Test public void onlyTouchesRadiosInTheMask() {
+    assertEquals(BLUETOOTH, radios.disable(BLUETOOTH));
+    assertTrue(wifi.enabled);
+    assertEquals(0, wifi.toggles);
+  }
+
+  @Test public void leavesRadiosAlreadyInTheRequestedState() {
+    bluetooth.enabled = false;
+    assertEquals(WIFI, radios.disable(WIFI | BLUETOOTH));
+    assertEquals(0, bluetooth.toggles);
+  }
+
+  /** What a shush does: only restore the radios it turned off. */
+  @Test public void restoringWhatWasTurnedOffLeavesTheUsersChoiceAlone() {
+    bluetooth.enabled = false; // the user had it off already
+
+    int shushed = radios.disable(WIFI | BLUETOOTH);
+    radios.enable(shushed);
+
+    assertTrue(wifi.enabled);
+    assertFalse(bluetooth.enabled);
+    assertEquals(0, bluetooth.toggles);
+  }
+
+  @Test public void skipsRadiosTheDeviceDoesNotHave() {
+    bluetooth = new FakeRadio(false, false);
+    radios = new Radios(wifi, bluetooth);
+
+    assertEquals(WIFI, radios.enabled());
+    assertEquals(WIFI, radios.disable(WIFI | BLUETOOTH));
+    assertEquals(WIFI, radios.enable(WIFI | BLUETOOTH));
+    assertEquals(0, bluetooth.toggles);
+  }
+
+  @Test public void ignoresBitsWithoutARadio() {
+    radios = new Radios(wifi);
+    assertEquals(WIFI, radios.disable(WIFI | BLUETOOTH | 1 << 5));
+  }
+
+  private static final class FakeRadio implements Radio {
+    final boolean available;
+    boolean enabled;
+    int toggles;
+
+    FakeRadio(boolean available, boolean enabled) {
+      this.available = available;
+      this.enabled = enabled;
+    }
+
+    @Override public boolean isAvailable() {
+      return available;
+    }
+
+    @Override public boolean isEnabled() {
+      return enabled;
+    }
+
+    @Override public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+      toggles++;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.schedule;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+import static com.f2prateek.shush.wifi.schedule.DurationPredictor.BUCKETS;
+import static com.f2prateek.shush.wifi.schedule.DurationPredictor.HOURS;
+import static com.f2prateek.shush.wifi.schedule.DurationPredictor.MINUTES_PER_BUCKET;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DurationPredictorTest {
+  /** Hours the synthetic user shushes Wi-Fi at, and what they usually pick then. */
+  private static final int[] HABIT_HOURS = {8, 14, 23};
+  private static final int[] HABIT_MINUTES = {60, 30, 8 * 60};
+
+  @Test public void nothingRecordedSuggestsNothing() {
+    DurationPredictor predictor = new DurationPredictor();
+    for (int hour = 0; hour < HOURS; hour++) {
+      assertEquals(-1, predictor.suggestMinutes(hour));
+    }
+  }
+
+  @Test public void suggestsTheHabitOfEachHourDespiteNoise() {
+    Random random = new Random(1);
+    DurationPredictor predictor = new DurationPredictor();
+    int suggestions = 0;
+    int matches = 0;
+    for (int day = 0; day < 90; day++) {
+      for (int i = 0; i < HABIT_HOURS.length; i++) {
+        int hour = HABIT_HOURS[i];
+        if (day >= 7) {
+          // Once there's a week of history, check what would have been offered.
+          suggestions++;
+          if (predictor.suggestMinutes(hour) == HABIT_MINUTES[i]) {
+            matches++;
+          }
+        }
+        // One time in five, something else entirely.
+        int minutes = random.nextInt(5) == 0 ? randomMinutes(random) : HABIT_MINUTES[i];
+        predictor.record(hour, minutes);
+      }
+    }
+    assertTrue(matches + " of " + suggestions, matches >= suggestions * 95 / 100);
+  }
+
+  @Test public void changedHabitTakesOverWithinFiveWeeks() {
+    Random random = new Random(2);
+    DurationPredictor predictor = new DurationPredictor();
+    for (int day = 0; day < 365; day++) {
+      predictor.record(23, random.nextInt(10) == 0 ? randomMinutes(random) : 8 * 60);
+    }
+    int days = 0;
+    while (predictor.suggestMinutes(23) != 6 * 60) {
+      predictor.record(23, random.nextInt(10) == 0 ? randomMinutes(random) : 6 * 60);
+      days++;
+    }
+    // Counters cap at 31 and halve, so a year of history is worth about a month.
+    assertTrue(days + " days", days <= 35);
+    // And the new habit sticks.
+    for (int day = 0; day < 30; day++) {
+      predictor.record(23, 6 * 60);
+      assertEquals(6 * 60, predictor.suggestMinutes(23));
+    }
+  }
+
+  @Test public void minutesAreRoundedToSliderSteps() {
+    DurationPredictor predictor = new DurationPredictor();
+    predictor.record(0, 37);
+    assertEquals(30, predictor.suggestMinutes(0));
+    predictor.record(1, 0);
+    assertEquals(MINUTES_PER_BUCKET, predictor.suggestMinutes(1));
+    predictor.record(2, 24 * 60);
+    assertEquals(BUCKETS * MINUTES_PER_BUCKET, predictor.suggestMinutes(2));
+  }
+
+  @Test public void encodedCountersDecodeToTheSameSuggestions() {
+    Random random = new Random(3);
+    DurationPredictor predictor = new DurationPredictor();
+    for (int i = 0; i < 5000; i++) {
+      predictor.record(random.nextInt(HOURS), randomMinutes(random));
+    }
+
+    DurationPredictor decoded = DurationPredictor.decode(predictor.encode());
+    assertEquals(predictor.encode(), decoded.encode());
+    for (int hour = 0; hour < HOURS; hour++) {
+      // Ties may resolve differently, but the decoded pick is as popular as the original.
+      assertEquals(count(predictor, hour, predictor.suggestMinutes(hour)),
+          count(decoded, hour, decoded.suggestMinutes(hour)));
+    }
+  }
+
+  @Test public void unusableCountersDecodeToNothing() {
+    String[] unusable = {null, "", "0", repeat('z', HOURS * BUCKETS)};
+    for (String encoded : unusable) {
+      DurationPredictor decoded = DurationPredictor.decode(encoded);
+      for (int hour = 0; hour < HOURS; hour++) {
+        assertEquals(-1, decoded.suggestMinutes(hour));
+      }
+    }
+  }
+
+  private static int randomMinutes(Random random) {
+    return (1 + random.nextInt(BUCKETS)) * MINUTES_PER_BUCKET;
+  }
+
+  private static int count(DurationPredictor predictor, int hour, int minutes) {
+    int index = hour * BUCKETS + minutes / MINUTES_PER_BUCKET - 1;
+    return predictor.encode().charAt(index) - '0';
+  }
+
+  private static String repeat(char c, int times) {
+    char[] chars = new char[times];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+}
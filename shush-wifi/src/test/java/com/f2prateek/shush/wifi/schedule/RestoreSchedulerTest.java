@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.schedule;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RestoreSchedulerTest {
+  private static final Runnable NOTHING = new Runnable() {
+    @Override public void run() {
+    }
+  };
+
+  private File file;
+  private ScheduleJournal journal;
+  private FakeAlarm alarm;
+  private ExecutorService executor;
+  private RestoreScheduler restoreScheduler;
+
+  @Before public void setUp() throws IOException {
+    file = File.createTempFile("schedule", ".journal");
+    file.delete();
+    journal = new ScheduleJournal(file);
+    alarm = new FakeAlarm();
+    executor = Executors.newSingleThreadExecutor();
+    restoreScheduler = new RestoreScheduler(executor, journal, alarm);
+  }
+
+  @After public void tearDown() {
+    executor.shutdownNow();
+    journal.clear();
+  }
+
+  @Test public void scheduleSetsTheAlarmAndJournal() throws InterruptedException {
+    restoreScheduler.schedule(new FakeRequest(1000, 0));
+    drain();
+
+    assertEquals(1000, alarm.entry.onTime);
+    assertEquals(1000, journal.read().onTime);
+  }
+
+  @Test public void resetAfterScheduleLeavesNothing() throws InterruptedException {
+    restoreScheduler.schedule(new FakeRequest(1000, 0));
+    restoreScheduler.reset(NOTHING);
+    drain();
+
+    assertNull(alarm.entry);
+    assertNull(journal.read());
+  }
+
+  /** The user reopens the prompt while the last schedule is still turning radios off. */
+  @Test public void resetWaitsForASlowSchedule() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    restoreScheduler.schedule(new FakeRequest(1000, 0) {
+      @Override public ScheduleJournal.Entry prepare() {
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.prepare();
+      }
+    });
+    restoreScheduler.reset(NOTHING);
+    release.countDown();
+    drain();
+
+    assertNull(alarm.entry);
+    assertNull(journal.read());
+    assertEquals(1, alarm.sets);
+    assertEquals(1, alarm.cancels);
+  }
+
+  @Test public void rapidSchedulesAndResetsEndWithTheLastRequest() throws InterruptedException {
+    Random random = new Random(5);
+    long lastOnTime = -1;
+    for (int i = 0; i < 100; i++) {
+      if (random.nextInt(3) == 0) {
+        restoreScheduler.reset(NOTHING);
+        lastOnTime = -1;
+      } else {
+        lastOnTime = 1000 + i;
+        restoreScheduler.schedule(new FakeRequest(lastOnTime, random.nextInt(3)));
+      }
+    }
+    drain();
+
+    if (lastOnTime == -1) {
+      assertNull(alarm.entry);
+      assertNull(journal.read());
+    } else {
+      assertEquals(lastOnTime, alarm.entry.onTime);
+      assertEquals(lastOnTime, journal.read().onTime);
+    }
+    assertEquals(0, alarm.outOfStep);
+  }
+
+  @Test public void resetRunsItsFollowUpAfterCancelling() throws InterruptedException {
+    restoreScheduler.schedule(new FakeRequest(1000, 0));
+    final boolean[] clearedFirst = new boolean[1];
+    restoreScheduler.reset(new Runnable() {
+      @Override public void run() {
+        clearedFirst[0] = alarm.entry == null && journal.read() == null;
+      }
+    });
+    drain();
+
+    assertTrue(clearedFirst[0]);
+  }
+
+  private void drain() throws InterruptedException {
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS)); // each write is synced
+  }
+
+  /** Checks that the journal is written before the alarm is set, and agrees with it. */
+  private final class FakeAlarm implements RestoreScheduler.Alarm {
+    ScheduleJournal.Entry entry;
+    int sets;
+    int cancels;
+    int outOfStep;
+
+    @Override public void set(ScheduleJournal.Entry entry) {
+      ScheduleJournal.Entry journaled = journal.read();
+      if (journaled == null || journaled.onTime != entry.onTime) {
+        outOfStep++;
+      }
+      this.entry = entry;
+      sets++;
+    }
+
+    @Override public void cancel() {
+      entry = null;
+      cancels++;
+    }
+  }
+
+  private class FakeRequest implements RestoreScheduler.Request {
+    private final long onTime;
+    private final int precision;
+
+    FakeRequest(long onTime, int precision) {
+      this.onTime = onTime;
+      this.precision = precision;
+    }
+
+    @Override public ScheduleJournal.Entry prepare() {
+      Thread.yield(); // like turning the other radios off
+      return new ScheduleJournal.Entry(onTime, precision, 0, 1);
+    }
+
+    @Override public void onScheduled(ScheduleJournal.Entry entry) {
+      assertNotNull(alarm.entry);
+    }
+  }
+}
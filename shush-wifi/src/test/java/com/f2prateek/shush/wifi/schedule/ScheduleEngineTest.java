@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2010 Jesse Wilson
+ * Copyright 2014 Prateek Srivastava (@f2prateek)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.f2prateek.shush.wifi.schedule;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Test;
+
+import static com.f2prateek.shush.wifi.schedule.ScheduleEngine.MINUTES_PER_DAY;
+import static com.f2prateek.shush.wifi.schedule.ScheduleEngine.MINUTES_PER_WEEK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ScheduleEngineTest {
+  private static final long MINUTE = 60 * 1000L;
+  private static final long DAY = MINUTES_PER_DAY * MINUTE;
+  private static final int EVERY_DAY = 0x7f;
+  private static final TimeZone LOS_ANGELES = TimeZone.getTimeZone("America/Los_Angeles");
+
+  @Test public void matchesMinuteScanForRandomSchedules() {
+    String[] zones = {
+        "UTC", "America/Los_Angeles", "Europe/London", "Asia/Kolkata", "Australia/Lord_Howe"
+    };
+    Random random = new Random(42);
+    for (String zone : zones) {
+      TimeZone timeZone = TimeZone.getTimeZone(zone);
+      for (int schedule = 0; schedule < 40; schedule++) {
+        Oracle oracle = new Oracle(timeZone);
+        ScheduleEngine engine = new ScheduleEngine(timeZone);
+        long base = time(timeZone, 2014, Calendar.JANUARY, 1, 0, 0)
+            + random.nextInt(365) * DAY;
+        int windows = 1 + random.nextInt(8);
+        for (int i = 0; i < windows; i++) {
+          int days = random.nextInt(EVERY_DAY + 1);
+          int start = random.nextInt(MINUTES_PER_DAY);
+          int end = random.nextInt(MINUTES_PER_DAY);
+          engine.addWeekly(days, start, end);
+          oracle.addWeekly(days, start, end);
+        }
+        int snoozes = random.nextInt(3);
+        for (int i = 0; i < snoozes; i++) {
+          long start = base + random.nextInt(3 * MINUTES_PER_DAY) * MINUTE;
+          long end = start + (1 + random.nextInt(600)) * MINUTE;
+          engine.addSnooze(start, end);
+          oracle.addSnooze(start, end);
+        }
+        for (int query = 0; query < 20; query++) {
+          long now = base + (long) (random.nextDouble() * 7 * DAY);
+          assertMatches(engine, oracle, now);
+        }
+      }
+    }
+  }
+
+  @Test public void matchesMinuteScanWithThousandsOfWindows() {
+    Random random = new Random(7);
+    Oracle oracle = new Oracle(LOS_ANGELES);
+    ScheduleEngine engine = new ScheduleEngine(LOS_ANGELES);
+    for (int i = 0; i < 5000; i++) {
+      int days = 1 << random.nextInt(7);
+      int start = random.nextInt(MINUTES_PER_DAY);
+      int end = (start + 1 + random.nextInt(2)) % MINUTES_PER_DAY;
+      engine.addWeekly(days, start, end);
+      oracle.addWeekly(days, start, end);
+    }
+    long base = time(LOS_ANGELES, 2014, Calendar.MARCH, 1, 0, 0);
+    for (int query = 0; query < 200; query++) {
+      assertMatches(engine, oracle, base + (long) (random.nextDouble() * 60 * DAY));
+    }
+  }
+
+  @Test public void matchesMinuteScanAroundDaylightSavingChanges() {
+    long[] changes = {
+        time(LOS_ANGELES, 2014, Calendar.MARCH, 9, 3, 0),
+        time(LOS_ANGELES, 2014, Calendar.NOVEMBER, 2, 1, 0) + 60 * MINUTE
+    };
+    Random random = new Random(3);
+    for (long change : changes) {
+      for (int schedule = 0; schedule < 100; schedule++) {
+        Oracle oracle = new Oracle(LOS_ANGELES);
+        ScheduleEngine engine = new ScheduleEngine(LOS_ANGELES);
+        // Windows near the change, where the local clock skips or repeats.
+        int windows = 1 + random.nextInt(3);
+        for (int i = 0; i < windows; i++) {
+          int start = 30 + random.nextInt(180);
+          int end = (start + 1 + random.nextInt(120)) % MINUTES_PER_DAY;
+          engine.addWeekly(EVERY_DAY, start, end);
+          oracle.addWeekly(EVERY_DAY, start, end);
+        }
+        for (int query = 0; query < 10; query++) {
+          long now = change + (random.nextInt(6 * 60) - 4 * 60) * MINUTE + random.nextInt(60000);
+          assertMatches(engine, oracle, now);
+        }
+      }
+    }
+  }
+
+  @Test public void windowCrossesTheEndOfTheWeek() {
+    TimeZone utc = TimeZone.getTimeZone("UTC");
+    ScheduleEngine engine = new ScheduleEngine(utc);
+    // Saturday 23:00 until Sunday 01:00.
+    engine.addWeekly(1 << (Calendar.SATURDAY - Calendar.SUNDAY), 23 * 60, 60);
+
+    long saturday = time(utc, 2014, Calendar.MARCH, 15, 22, 0);
+    assertEquals(new Edge(saturday + 60 * MINUTE, true), engine.nextEdge(saturday));
+    assertTrue(engine.isOff(saturday + 2 * 60 * MINUTE));
+    assertEquals(new Edge(saturday + 3 * 60 * MINUTE, false),
+        engine.nextEdge(saturday + 2 * 60 * MINUTE));
+    // And again a week later.
+    assertEquals(new Edge(saturday + 7 * DAY + 60 * MINUTE, true),
+        engine.nextEdge(saturday + 3 * 60 * MINUTE));
+  }
+
+  @Test public void windowsTouchingBothEndsOfTheWeekJoin() {
+    TimeZone utc = TimeZone.getTimeZone("UTC");
+    ScheduleEngine engine = new ScheduleEngine(utc);
+    engine.addWeekly(1 << (Calendar.SATURDAY - Calendar.SUNDAY), 22 * 60, 0);
+    engine.addWeekly(1, 0, 2 * 60);
+
+    long saturday = time(utc, 2014, Calendar.MARCH, 15, 23, 0);
+    // No edge at Saturday midnight.
+    assertEquals(new Edge(saturday + 3 * 60 * MINUTE, false), engine.nextEdge(saturday));
+  }
+
+  @Test public void springForwardTurnsOffWhenTheClockSkipsIntoAWindow() {
+    ScheduleEngine engine = new ScheduleEngine(LOS_ANGELES);
+    // 02:30 doesn't exist on March 9, 2014; the clock goes from 01:59 to 03:00.
+    engine.addWeekly(EVERY_DAY, 2 * 60 + 30, 3 * 60 + 30);
+
+    long one = time(LOS_ANGELES, 2014, Calendar.MARCH, 9, 1, 0);
+    long three = one + 60 * MINUTE;
+    assertEquals(new Edge(three, true), engine.nextEdge(one));
+    assertEquals(new Edge(three + 30 * MINUTE, false), engine.nextEdge(three));
+  }
+
+  @Test public void fallBackRepeatsAWindowInTheRepeatedHour() {
+    ScheduleEngine engine = new ScheduleEngine(LOS_ANGELES);
+    // 01:00 to 02:00 happens twice on November 2, 2014.
+    engine.addWeekly(EVERY_DAY, 60 + 30, 60 + 45);
+
+    long firstOneFortyFive = time(LOS_ANGELES, 2014, Calendar.NOVEMBER, 2, 0, 0)
+        + 105 * MINUTE;
+    assertEquals(new Edge(firstOneFortyFive + 45 * MINUTE, true),
+        engine.nextEdge(firstOneFortyFive));
+  }
+
+  @Test public void windowsCoveringTheWholeWeekNeverChange() {
+    ScheduleEngine engine = new ScheduleEngine(LOS_ANGELES);
+    engine.addWeekly(EVERY_DAY, 0, 0);
+
+    long now = time(LOS_ANGELES, 2014, Calendar.MARCH, 9, 1, 0);
+    assertTrue(engine.isOff(now));
+    assertNull(engine.nextEdge(now));
+  }
+
+  @Test public void emptyScheduleNeverChanges() {
+    ScheduleEngine engine = new ScheduleEngine(LOS_ANGELES);
+
+    long now = time(LOS_ANGELES, 2014, Calendar.MARCH, 9, 1, 0);
+    assertFalse(engine.isOff(now));
+    assertNull(engine.nextEdge(now));
+  }
+
+  @Test public void snoozeEdgesKeepTheirMilliseconds() {
+    ScheduleEngine engine = new ScheduleEngine(LOS_ANGELES);
+    engine.addSnooze(1001, 2002);
+
+    assertEquals(new Edge(1001, true), engine.nextEdge(0));
+    assertEquals(new Edge(2002, false), engine.nextEdge(1001));
+    assertNull(engine.nextEdge(2002));
+  }
+
+  @Test public void snoozeLongerThanAWeekSkipsTheWindowsInside() {
+    Oracle oracle = new Oracle(LOS_ANGELES);
+    ScheduleEngine engine = new ScheduleEngine(LOS_ANGELES);
+    engine.addWeekly(EVERY_DAY, 23 * 60, 7 * 60);
+    oracle.addWeekly(EVERY_DAY, 23 * 60, 7 * 60);
+    // Ten days, over twenty weekly edges.
+    long noon = time(LOS_ANGELES, 2014, Calendar.MARCH, 17, 12, 0);
+    long end = time(LOS_ANGELES, 2014, Calendar.MARCH, 27, 3, 0);
+    engine.addSnooze(noon, end);
+    oracle.addSnooze(noon, end);
+
+    assertEquals(new Edge(noon, true), engine.nextEdge(noon - MINUTE));
+    // Ends inside a weekly window, so that one's end is the next change.
+    assertEquals(new Edge(end + 4 * 60 * MINUTE, false), engine.nextEdge(noon));
+    assertEquals(new Edge(end + 4 * 60 * MINUTE, false), engine.nextEdge(end - MINUTE));
+    for (long now = noon - DAY; now < end + DAY; now += 7 * 60 * MINUTE + 1) {
+      assertMatches(engine, oracle, now);
+    }
+  }
+
+  @Test public void encodedWindowsDecodeToTheSameSchedule() {
+    ScheduleEngine engine = new ScheduleEngine(LOS_ANGELES);
+    engine.addWeekly(1 << (Calendar.SATURDAY - Calendar.SUNDAY), 23 * 60, 60);
+    engine.addWeekly(0x3e, 9 * 60, 17 * 60);
+    long sundayNoon = time(LOS_ANGELES, 2014, Calendar.MARCH, 16, 12, 0);
+    engine.addSnooze(sundayNoon, sundayNoon + MINUTE);
+
+    ScheduleEngine decoded = ScheduleEngine.decode(engine.encode(), LOS_ANGELES);
+    assertEquals(engine.encode(), decoded.encode());
+    assertEquals(6, decoded.weeklyCount());
+    assertEquals(6 * MINUTES_PER_DAY + 23 * 60, decoded.weeklyStart(0));
+    assertEquals(MINUTES_PER_WEEK + 60, decoded.weeklyEnd(0));
+    assertTrue(engine.isOff(sundayNoon));
+    assertFalse(decoded.isOff(sundayNoon)); // snoozes aren't kept
+  }
+
+  @Test public void malformedWindowsDecodeToNone() {
+    String[] malformed = {null, "", "1-", "-1", "a-b", "10-5", "0-1441", "10080-10081", "1-2,"};
+    for (String encoded : malformed) {
+      assertEquals(String.valueOf(encoded), 0,
+          ScheduleEngine.decode(encoded, LOS_ANGELES).weeklyCount());
+    }
+  }
+
+  private static void assertMatches(ScheduleEngine engine, Oracle oracle, long now) {
+    String at = "at " + now + " in " + oracle.timeZone.getID();
+    assertEquals(at, oracle.isOff(now), engine.isOff(now));
+    assertEquals(at, oracle.nextEdge(now), engine.nextEdge(now));
+  }
+
+  private static long time(TimeZone timeZone, int year, int month, int day, int hour, int minute) {
+    Calendar calendar = new GregorianCalendar(timeZone);
+    calendar.clear();
+    calendar.set(year, month, day, hour, minute);
+    return calendar.getTimeInMillis();
+  }
+
+  /**
+   * Marks each minute of the week one window at a time, and finds edges by stepping a minute at a
+   * time. Snoozes must start and end on the minute.
+   */
+  private static final class Oracle {
+    final TimeZone timeZone;
+    final Calendar calendar;
+    final boolean[] off = new boolean[MINUTES_PER_WEEK];
+    long[] snoozes = new long[0];
+    long lastSnoozeEnd;
+
+    Oracle(TimeZone timeZone) {
+      this.timeZone = timeZone;
+      this.calendar = new GregorianCalendar(timeZone);
+    }
+
+    void addWeekly(int days, int start, int end) {
+      int length = end > start ? end - start : end - start + MINUTES_PER_DAY;
+      for (int day = 0; day < 7; day++) {
+        if ((days & (1 << day)) != 0) {
+          for (int minute = 0; minute < length; minute++) {
+            off[(day * MINUTES_PER_DAY + start + minute) % MINUTES_PER_WEEK] = true;
+          }
+        }
+      }
+    }
+
+    void addSnooze(long start, long end) {
+      long[] grown = new long[snoozes.length + 2];
+      System.arraycopy(snoozes, 0, grown, 0, snoozes.length);
+      grown[snoozes.length] = start;
+      grown[snoozes.length + 1] = end;
+      snoozes = grown;
+      lastSnoozeEnd = Math.max(lastSnoozeEnd, end);
+    }
+
+    boolean isOff(long time) {
+      for (int i = 0; i < snoozes.length; i += 2) {
+        if (time >= snoozes[i] && time < snoozes[i + 1]) {
+          return true;
+        }
+      }
+      calendar.setTimeInMillis(time);
+      int minute = (calendar.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY) * MINUTES_PER_DAY
+          + calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+      return off[minute];
+    }
+
+    Edge nextEdge(long now) {
+      boolean state = isOff(now);
+      long end = Math.max(now, lastSnoozeEnd) + 8 * DAY;
+      for (long time = (now / MINUTE + 1) * MINUTE; time < end; time += MINUTE) {
+        if (isOff(time) != state) {
+          return new Edge(time, !state);
+        }
+      }
+      return null;
+    }
+  }
+}